@@ -36,6 +36,8 @@ public abstract class AbstractBytes<Underlying> implements Bytes<Underlying> {
     protected long writeLimit;
     protected boolean isPresent;
     private int lastDecimalPlaces = 0;
+    @Nullable
+    private ByteBuffer view;
 
     AbstractBytes(@NotNull BytesStore<Bytes<Underlying>, Underlying> bytesStore, long writePosition, long writeLimit)
             throws IllegalStateException {
@@ -46,6 +48,22 @@ public abstract class AbstractBytes<Underlying> implements Bytes<Underlying> {
         this.writeLimit = writeLimit;
     }
 
+    @NotNull
+    @Override
+    public ByteBuffer byteBufferView(long offset, int length)
+            throws BufferUnderflowException, UnsupportedOperationException, IORuntimeException {
+        readCheckOffset(offset, length, true);
+        BytesStore bytesStore = this.bytesStore;
+        if (!(bytesStore instanceof NativeBytesStore))
+            throw new UnsupportedOperationException();
+        if (!bytesStore.inside(offset) || offset + length > bytesStore.safeLimit())
+            throw new BufferUnderflowException();
+        ByteBuffer bb = view;
+        if (bb == null)
+            view = bb = ByteBuffer.allocateDirect(0);
+        return NativeBytesStore.view(bb, bytesStore.address(offset), length);
+    }
+
     @Override
     public void move(long from, long to, long length) {
         long start = start();
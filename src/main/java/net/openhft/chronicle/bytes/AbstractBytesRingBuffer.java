@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The layout and consumer statistics shared by the ring buffers in this package.
+ * <p></p>
+ * The layout of the BytesStore is
+ * <pre>
+ * [write position, padded to a cache line][read position, padded to a cache line][data ...]
+ * </pre>
+ * Each message is a 4 byte header followed by the payload, aligned to 8 bytes. A message is never
+ * split at the end of the buffer, instead a padding record (a negative header) fills the remainder
+ * and the message starts again at the beginning.
+ */
+abstract class AbstractBytesRingBuffer implements BytesRingBuffer {
+    static final int CACHE_LINE_SIZE = 64;
+    static final long WRITE_POSITION = 0;
+    static final long READ_POSITION = WRITE_POSITION + CACHE_LINE_SIZE;
+    static final long DATA = READ_POSITION + CACHE_LINE_SIZE;
+    static final int LENGTH_SIZE = 4;
+    // so the distance to the end of the buffer always fits in an int header.
+    static final long MAX_CAPACITY = 1L << 30;
+
+    @NotNull
+    final BytesStore bytesStore;
+    final long capacity;
+    final long mask;
+
+    // only accessed by the consumer.
+    long readPosition;
+    private long readCount;
+    private long minNumberOfWriteBytesRemaining = Long.MAX_VALUE;
+    private PointerBytesStore viewStore;
+    private Bytes<Void> view;
+
+    AbstractBytesRingBuffer(@NotNull BytesStore bytesStore) {
+        long available = bytesStore.capacity() - DATA;
+        if (available < 8)
+            throw new IllegalArgumentException("BytesStore too small, capacity: " + bytesStore.capacity());
+        long capacity = Long.highestOneBit(available);
+        checkCapacity(capacity);
+        this.bytesStore = bytesStore;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.readPosition = bytesStore.readVolatileLong(READ_POSITION);
+    }
+
+    /**
+     * @param capacity of the data portion of the ring buffer, rounded up to a power of 2.
+     * @return the size of the BytesStore required.
+     * @throws IllegalArgumentException if the capacity is larger than 1 GB.
+     */
+    public static long sizeFor(long capacity) throws IllegalArgumentException {
+        checkCapacity(capacity);
+        return DATA + Maths.nextPower2(capacity, 8);
+    }
+
+    static int recordSize(long length) {
+        return (int) ((LENGTH_SIZE + length + 7) & ~7);
+    }
+
+    static void checkCapacity(long capacity) throws IllegalArgumentException {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Capacity " + capacity + " larger than the maximum of " + MAX_CAPACITY);
+    }
+
+    int checkedRecordSize(long length) throws IllegalArgumentException {
+        return checkedRecordSize(length, capacity);
+    }
+
+    static int checkedRecordSize(long length, long capacity) throws IllegalArgumentException {
+        if (length < 0 || length > capacity - LENGTH_SIZE || recordSize(length) > capacity)
+            throw new IllegalArgumentException("Message of " + length + " bytes too large for a capacity of " + capacity);
+        return recordSize(length);
+    }
+
+    /**
+     * @return a reusable Bytes which wraps a message in place.
+     */
+    @NotNull
+    Bytes<Void> view(long offset, long length) {
+        if (view == null) {
+            viewStore = BytesStore.nativePointer();
+            view = viewStore.bytesForRead();
+        }
+        viewStore.set(bytesStore.address(offset), length);
+        view.clear();
+        view.readLimit(length);
+        return view;
+    }
+
+    void onRead(long writePosition, int messages) {
+        readCount += messages;
+        long writeBytesRemaining = capacity - (writePosition - readPosition);
+        if (writeBytesRemaining < minNumberOfWriteBytesRemaining)
+            minNumberOfWriteBytesRemaining = writeBytesRemaining;
+    }
+
+    /**
+     * The state of a message claimed by a producer but not yet committed.
+     */
+    static final class Claim {
+        private final PointerBytesStore store = BytesStore.nativePointer();
+        private final Bytes<Void> bytes = store.bytesForWrite();
+        // the offset of the header, or -1 if nothing is claimed.
+        long offset = -1;
+        int maxLength;
+        long startNs;
+
+        @NotNull
+        Bytes<Void> claim(@NotNull BytesStore bytesStore, long offset, int maxLength) {
+            this.offset = offset;
+            this.maxLength = maxLength;
+            this.startNs = System.nanoTime();
+            store.set(bytesStore.address(offset + LENGTH_SIZE), maxLength);
+            return bytes.clear();
+        }
+
+        void checkCommit(int actualLength) throws IllegalStateException, IllegalArgumentException {
+            if (offset < 0)
+                throw new IllegalStateException("Nothing claimed to commit");
+            if (actualLength < 0 || actualLength > maxLength)
+                throw new IllegalArgumentException("actualLength: " + actualLength + " not in the range [0, " + maxLength + "]");
+        }
+    }
+
+    @Override
+    public long readRemaining() {
+        return bytesStore.readVolatileLong(WRITE_POSITION) - bytesStore.readVolatileLong(READ_POSITION);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return readRemaining() == 0;
+    }
+
+    @Override
+    public long minNumberOfWriteBytesRemaining() {
+        long min = minNumberOfWriteBytesRemaining;
+        minNumberOfWriteBytesRemaining = Long.MAX_VALUE;
+        return min;
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getAndClearReadCount() {
+        long count = readCount;
+        readCount = 0;
+        return count;
+    }
+}
@@ -199,7 +199,7 @@ public enum AppendableUtil {
             throws IORuntimeException, BufferUnderflowException {
         if (appendable instanceof StringBuilder) {
             final StringBuilder sb = (StringBuilder) appendable;
-            if (bytes instanceof Bytes && ((Bytes) bytes).bytesStore() instanceof NativeBytesStore) {
+            if (bytes instanceof Bytes && ((Bytes) bytes).bytesStore() instanceof NativeBytesStore && bytes.isNative()) {
                 parse8bit_SB1((Bytes) bytes, sb, utflen);
             } else {
                 BytesInternal.parse8bit1(bytes, sb, utflen);
@@ -0,0 +1,609 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.ClassLocal;
+import net.openhft.chronicle.core.util.ObjectUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.UUID;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * A compact binary encoding for one type of non-primitive field, chosen once per field by
+ * BytesMarshaller.
+ * <p></p>
+ * Values which can be null either fold null into a stop bit encoded value as 0, with other values
+ * written as value + 1, or are prefixed with a byte which is 0 for null.  Signed values are zig-zag
+ * encoded so small negative numbers are small too.
+ * <p></p>
+ * Mutable values such as nested BytesMarshallable, arrays and StringBuilder are read into the
+ * previous value where possible, so steady state reading doesn't allocate.
+ */
+interface BinaryCodec {
+    ClassLocal<BinaryCodec> CODEC_CL = ClassLocal.withInitial(BinaryCodec::create);
+
+    @NotNull
+    static BinaryCodec forClass(@NotNull Class type) {
+        return CODEC_CL.get(type);
+    }
+
+    @NotNull
+    static BinaryCodec create(@NotNull Class type) {
+        if (type == String.class)
+            return StringCodec.INSTANCE;
+        if (type == StringBuilder.class)
+            return StringBuilderCodec.INSTANCE;
+        if (type == Boolean.class)
+            return BooleanCodec.INSTANCE;
+        if (type == Byte.class || type == Short.class || type == Integer.class)
+            return new IntCodec(type);
+        if (type == Character.class)
+            return CharCodec.INSTANCE;
+        if (type == Long.class)
+            return LongCodec.INSTANCE;
+        if (type == Float.class || type == Double.class)
+            return new FloatingCodec(type);
+        if (type.isEnum())
+            return new EnumCodec(type);
+        if (type == BigInteger.class)
+            return BigIntegerCodec.INSTANCE;
+        if (type == BigDecimal.class)
+            return BigDecimalCodec.INSTANCE;
+        if (type == LocalDate.class)
+            return LocalDateCodec.INSTANCE;
+        if (type == LocalTime.class)
+            return LocalTimeCodec.INSTANCE;
+        if (type == LocalDateTime.class || type == Instant.class || type == ZonedDateTime.class)
+            return new EpochCodec(type);
+        if (type == UUID.class)
+            return UUIDCodec.INSTANCE;
+        if (type.isArray())
+            return type.getComponentType().isPrimitive()
+                    ? new PrimitiveArrayCodec(type.getComponentType())
+                    : new ObjectArrayCodec(type.getComponentType());
+        if (BytesMarshallable.class.isAssignableFrom(type))
+            return new MarshallableCodec(type);
+        return new TextCodec(type);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the length of an array or collection, or -1 for null.
+     */
+    static int readLength(@NotNull BytesIn in) {
+        return (int) in.readStopBit() - 1;
+    }
+
+    void write(@Nullable Object o, @NotNull BytesOut out);
+
+    @Nullable
+    Object read(@NotNull BytesIn in);
+
+    /**
+     * @param using the previous value which may be reused, or null
+     * @return the value read, which may be using
+     */
+    @Nullable
+    default Object read(@NotNull BytesIn in, @Nullable Object using) {
+        return read(in);
+    }
+
+    enum StringCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeUtf8((String) o);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return in.readUtf8();
+        }
+    }
+
+    /**
+     * The same encoding as StringCodec, read into the previous StringBuilder.
+     */
+    enum StringBuilderCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeUtf8((CharSequence) o);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return read(in, null);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in, Object using) {
+            StringBuilder sb = using == null ? new StringBuilder() : (StringBuilder) using;
+            return in.readUtf8(sb) ? sb : null;
+        }
+    }
+
+    enum BooleanCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeByte(o == null ? 0 : (Boolean) o ? (byte) 'Y' : (byte) 'N');
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            byte b = in.readByte();
+            return b == 0 ? null : b == 'Y';
+        }
+    }
+
+    enum CharCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeStopBit(o == null ? 0 : (Character) o + 1);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long value = in.readStopBit();
+            return value == 0 ? null : (char) (value - 1);
+        }
+    }
+
+    final class IntCodec implements BinaryCodec {
+        private final Class type;
+
+        IntCodec(Class type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeStopBit(o == null ? 0 : zigZag(((Number) o).intValue()) + 1);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long value = in.readStopBit();
+            if (value == 0)
+                return null;
+            int i = (int) unZigZag(value - 1);
+            return type == Integer.class ? Integer.valueOf(i)
+                    : type == Short.class ? Short.valueOf((short) i)
+                    : (Object) Byte.valueOf((byte) i);
+        }
+    }
+
+    /**
+     * Every long value is needed, so null is a prefix byte.
+     */
+    enum LongCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeByte((byte) 0);
+            } else {
+                out.writeByte((byte) 1);
+                out.writeStopBit(zigZag((Long) o));
+            }
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return in.readByte() == 0 ? null : unZigZag(in.readStopBit());
+        }
+    }
+
+    final class FloatingCodec implements BinaryCodec {
+        private final Class type;
+
+        FloatingCodec(Class type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeByte((byte) 0);
+            } else {
+                out.writeByte((byte) 1);
+                out.writeStopBit(((Number) o).doubleValue());
+            }
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            if (in.readByte() == 0)
+                return null;
+            double d = in.readStopBitDouble();
+            return type == Double.class ? (Object) d : (Object) (float) d;
+        }
+    }
+
+    final class EnumCodec implements BinaryCodec {
+        private final Enum[] values;
+
+        EnumCodec(Class type) {
+            this.values = (Enum[]) type.getEnumConstants();
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeStopBit(o == null ? 0 : ((Enum) o).ordinal() + 1);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long value = in.readStopBit();
+            return value == 0 ? null : values[(int) value - 1];
+        }
+    }
+
+    enum BigIntegerCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeStopBit(0);
+                return;
+            }
+            byte[] bytes = ((BigInteger) o).toByteArray();
+            out.writeStopBit(bytes.length + 1);
+            out.write(bytes);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            int length = readLength(in);
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            in.read(bytes);
+            return new BigInteger(bytes);
+        }
+    }
+
+    enum BigDecimalCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            BigDecimal bd = (BigDecimal) o;
+            BigIntegerCodec.INSTANCE.write(bd == null ? null : bd.unscaledValue(), out);
+            if (bd != null)
+                out.writeStopBit(zigZag(bd.scale()));
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            BigInteger unscaled = (BigInteger) BigIntegerCodec.INSTANCE.read(in);
+            return unscaled == null ? null : new BigDecimal(unscaled, (int) unZigZag(in.readStopBit()));
+        }
+    }
+
+    enum LocalDateCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeStopBit(o == null ? 0 : zigZag(((LocalDate) o).toEpochDay()) + 1);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long value = in.readStopBit();
+            return value == 0 ? null : LocalDate.ofEpochDay(unZigZag(value - 1));
+        }
+    }
+
+    enum LocalTimeCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeStopBit(o == null ? 0 : ((LocalTime) o).toNanoOfDay() + 1);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long value = in.readStopBit();
+            return value == 0 ? null : LocalTime.ofNanoOfDay(value - 1);
+        }
+    }
+
+    /**
+     * Epoch seconds and nanos, as epoch nanos alone would overflow a long for dates after 2262.
+     * LocalDateTime is treated as UTC and ZonedDateTime adds its zone id.
+     */
+    final class EpochCodec implements BinaryCodec {
+        private final Class type;
+
+        EpochCodec(Class type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeStopBit(0);
+                return;
+            }
+            Instant instant = type == Instant.class ? (Instant) o
+                    : type == LocalDateTime.class ? ((LocalDateTime) o).toInstant(ZoneOffset.UTC)
+                    : ((ZonedDateTime) o).toInstant();
+            out.writeStopBit(zigZag(instant.getEpochSecond()) + 1);
+            out.writeStopBit(instant.getNano());
+            if (type == ZonedDateTime.class)
+                out.writeUtf8(((ZonedDateTime) o).getZone().getId());
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            long seconds = in.readStopBit();
+            if (seconds == 0)
+                return null;
+            Instant instant = Instant.ofEpochSecond(unZigZag(seconds - 1), in.readStopBit());
+            if (type == Instant.class)
+                return instant;
+            if (type == LocalDateTime.class)
+                return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+            return ZonedDateTime.ofInstant(instant, ZoneId.of(in.readUtf8()));
+        }
+    }
+
+    enum UUIDCodec implements BinaryCodec {
+        INSTANCE;
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeByte((byte) 0);
+            } else {
+                UUID uuid = (UUID) o;
+                out.writeByte((byte) 1);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            }
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return in.readByte() == 0 ? null : new UUID(in.readLong(), in.readLong());
+        }
+    }
+
+    /**
+     * A length and the elements of the array, copied in bulk where the Bytes are native memory.
+     * boolean[] is always copied one element at a time, as writeBoolean() doesn't write a JVM boolean.
+     */
+    final class PrimitiveArrayCodec implements BinaryCodec {
+        private final Class componentType;
+        private final int shift;
+        private final long base;
+        private final boolean bulk;
+
+        PrimitiveArrayCodec(Class componentType) {
+            this.componentType = componentType;
+            this.base = UNSAFE.arrayBaseOffset(Array.newInstance(componentType, 0).getClass());
+            int scale = UNSAFE.arrayIndexScale(Array.newInstance(componentType, 0).getClass());
+            this.shift = Integer.numberOfTrailingZeros(scale);
+            this.bulk = componentType != boolean.class;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeStopBit(0);
+                return;
+            }
+            int length = Array.getLength(o);
+            out.writeStopBit(length + 1);
+            long size = (long) length << shift;
+            long position = out.writePosition();
+            if (bulk && BytesInternal.nativeLength(out, position, size) < size && out instanceof Bytes && ((Bytes) out).isElastic())
+                ((Bytes) out).ensureCapacity(position + size);
+            if (bulk && size > 0 && BytesInternal.nativeLength(out, position, size) == size) {
+                UNSAFE.copyMemory(o, base, null, BytesInternal.address(out, position), size);
+                out.writeSkip(size);
+                return;
+            }
+            for (int i = 0; i < length; i++)
+                writeElement(o, i, out);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return read(in, null);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in, Object using) {
+            int length = readLength(in);
+            if (length < 0)
+                return null;
+            Object array = using != null && Array.getLength(using) == length
+                    ? using
+                    : Array.newInstance(componentType, length);
+            long size = (long) length << shift;
+            long position = in.readPosition();
+            if (bulk && size > 0 && in.readRemaining() >= size && BytesInternal.nativeLength(in, position, size) == size) {
+                UNSAFE.copyMemory(null, BytesInternal.address(in, position), array, base, size);
+                in.readSkip(size);
+                return array;
+            }
+            for (int i = 0; i < length; i++)
+                readElement(array, i, in);
+            return array;
+        }
+
+        private void writeElement(Object array, int i, @NotNull BytesOut out) {
+            if (componentType == byte.class)
+                out.writeByte(((byte[]) array)[i]);
+            else if (componentType == boolean.class)
+                out.writeBoolean(((boolean[]) array)[i]);
+            else if (componentType == short.class)
+                out.writeShort(((short[]) array)[i]);
+            else if (componentType == char.class)
+                out.writeShort((short) ((char[]) array)[i]);
+            else if (componentType == int.class)
+                out.writeInt(((int[]) array)[i]);
+            else if (componentType == float.class)
+                out.writeFloat(((float[]) array)[i]);
+            else if (componentType == long.class)
+                out.writeLong(((long[]) array)[i]);
+            else
+                out.writeDouble(((double[]) array)[i]);
+        }
+
+        private void readElement(Object array, int i, @NotNull BytesIn in) {
+            if (componentType == byte.class)
+                ((byte[]) array)[i] = in.readByte();
+            else if (componentType == boolean.class)
+                ((boolean[]) array)[i] = in.readBoolean();
+            else if (componentType == short.class)
+                ((short[]) array)[i] = in.readShort();
+            else if (componentType == char.class)
+                ((char[]) array)[i] = (char) in.readShort();
+            else if (componentType == int.class)
+                ((int[]) array)[i] = in.readInt();
+            else if (componentType == float.class)
+                ((float[]) array)[i] = in.readFloat();
+            else if (componentType == long.class)
+                ((long[]) array)[i] = in.readLong();
+            else
+                ((double[]) array)[i] = in.readDouble();
+        }
+    }
+
+    final class ObjectArrayCodec implements BinaryCodec {
+        private final Class componentType;
+        private final BinaryCodec codec;
+
+        ObjectArrayCodec(Class componentType) {
+            this.componentType = componentType;
+            this.codec = forClass(componentType);
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeStopBit(0);
+                return;
+            }
+            Object[] array = (Object[]) o;
+            out.writeStopBit(array.length + 1);
+            for (Object e : array)
+                codec.write(e, out);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return read(in, null);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in, Object using) {
+            int length = readLength(in);
+            if (length < 0)
+                return null;
+            Object[] array = using != null && using.getClass().getComponentType() == componentType && ((Object[]) using).length == length
+                    ? (Object[]) using
+                    : (Object[]) Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++)
+                array[i] = codec.read(in, array[i]);
+            return array;
+        }
+    }
+
+    final class MarshallableCodec implements BinaryCodec {
+        private final Class type;
+
+        MarshallableCodec(Class type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            if (o == null) {
+                out.writeByte((byte) 0);
+            } else {
+                out.writeByte((byte) 1);
+                ((BytesMarshallable) o).writeMarshallable(out);
+            }
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return read(in, null);
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in, Object using) {
+            if (in.readByte() == 0)
+                return null;
+            BytesMarshallable bm = using != null && using.getClass() == type
+                    ? (BytesMarshallable) using
+                    : (BytesMarshallable) ObjectUtils.newInstance(type);
+            bm.readMarshallable(in);
+            return bm;
+        }
+    }
+
+    /**
+     * For any other type, the toString() as text, parsed back with ObjectUtils.convertTo.
+     */
+    final class TextCodec implements BinaryCodec {
+        private final Class type;
+
+        TextCodec(Class type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Object o, @NotNull BytesOut out) {
+            out.writeUtf8(o == null ? null : o.toString());
+        }
+
+        @Override
+        public Object read(@NotNull BytesIn in) {
+            return ObjectUtils.convertTo(type, in.readUtf8());
+        }
+    }
+}
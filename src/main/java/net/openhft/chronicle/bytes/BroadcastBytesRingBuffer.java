@@ -0,0 +1,361 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.ref.BinaryLongReference;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import static net.openhft.chronicle.bytes.AbstractBytesRingBuffer.CACHE_LINE_SIZE;
+import static net.openhft.chronicle.bytes.AbstractBytesRingBuffer.LENGTH_SIZE;
+import static net.openhft.chronicle.bytes.AbstractBytesRingBuffer.checkCapacity;
+import static net.openhft.chronicle.bytes.AbstractBytesRingBuffer.checkedRecordSize;
+import static net.openhft.chronicle.bytes.AbstractBytesRingBuffer.recordSize;
+
+/**
+ * A ring buffer in a memory mapped file with one writer and any number of readers, which can be in
+ * different processes.
+ * <p></p>
+ * The layout of the file is
+ * <pre>
+ * [state, capacity, readers][write position, claim position][reader 0 position] ... [reader n-1 position][data ...]
+ * </pre>
+ * where each section is padded to a cache line. Messages are stored as in the other ring buffers,
+ * a 4 byte length followed by the payload aligned to 8 bytes, with padding records at the end of
+ * the buffer.
+ * <p></p>
+ * Before overwriting old data the writer publishes the end of the region it is about to write as
+ * the claim position. A reader checks the claim position after copying a message, and if the
+ * region it read might have been overwritten it throws a {@link ReaderLappedException} rather than
+ * returning corrupt data.
+ */
+public class BroadcastBytesRingBuffer implements Closeable {
+    static final long UNUSED = -1;
+    private static final long STATE = 0;
+    private static final long CAPACITY = STATE + 8;
+    private static final long READERS = CAPACITY + 8;
+    private static final long WRITE_POSITION = CACHE_LINE_SIZE;
+    private static final long CLAIM_POSITION = WRITE_POSITION + 8;
+    private static final long READER_POSITIONS = WRITE_POSITION + CACHE_LINE_SIZE;
+    private static final int STATE_INITIALISING = 1;
+    private static final int STATE_READY = 2;
+
+    @NotNull
+    private final MappedFile mappedFile;
+    @NotNull
+    private final MappedBytesStore bytesStore;
+    private final long capacity;
+    private final long mask;
+    private final int readers;
+    private final long data;
+
+    // only accessed by the writer
+    private long writePosition;
+    private long cachedSlowestReadPosition;
+
+    private BroadcastBytesRingBuffer(@NotNull MappedFile mappedFile, long capacity, int readers) throws IOException {
+        checkCapacity(capacity);
+        this.mappedFile = mappedFile;
+        this.bytesStore = mappedFile.acquireByteStore(0);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.readers = readers;
+        this.data = dataOffset(readers);
+        initialise();
+        this.writePosition = bytesStore.readVolatileLong(WRITE_POSITION);
+        this.cachedSlowestReadPosition = slowestReadPosition();
+    }
+
+    /**
+     * Create or open a broadcast ring buffer.  All the processes using the file must agree on the
+     * capacity and the number of readers.
+     *
+     * @param file     to map
+     * @param capacity of the data portion, rounded up to a power of 2.
+     * @param readers  the maximum number of readers
+     * @return the ring buffer.
+     * @throws IllegalArgumentException if the capacity is larger than 1 GB.
+     */
+    @NotNull
+    public static BroadcastBytesRingBuffer of(@NotNull File file, long capacity, int readers) throws IOException {
+        if (readers < 1)
+            throw new IllegalArgumentException("readers: " + readers);
+        long capacity2 = Maths.nextPower2(capacity, 8);
+        checkCapacity(capacity2);
+        MappedFile mappedFile = MappedFile.mappedFile(file, OS.mapAlign(sizeFor(capacity2, readers)), 0);
+        try {
+            return new BroadcastBytesRingBuffer(mappedFile, capacity2, readers);
+        } catch (IOException | RuntimeException e) {
+            mappedFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param capacity of the data portion, rounded up to a power of 2.
+     * @param readers  the maximum number of readers
+     * @return the size of the file required.
+     * @throws IllegalArgumentException if the capacity is larger than 1 GB.
+     */
+    public static long sizeFor(long capacity, int readers) {
+        long capacity2 = Maths.nextPower2(capacity, 8);
+        checkCapacity(capacity2);
+        return dataOffset(readers) + capacity2;
+    }
+
+    private static long dataOffset(int readers) {
+        return READER_POSITIONS + (long) readers * CACHE_LINE_SIZE;
+    }
+
+    private void initialise() {
+        if (bytesStore.compareAndSwapLong(STATE, 0, STATE_INITIALISING)) {
+            bytesStore.writeLong(CAPACITY, capacity);
+            bytesStore.writeLong(READERS, readers);
+            for (int i = 0; i < readers; i++)
+                bytesStore.writeLong(readerPositionOffset(i), UNUSED);
+            bytesStore.writeOrderedLong(STATE, STATE_READY);
+
+        } else {
+            while (bytesStore.readVolatileLong(STATE) != STATE_READY)
+                Thread.yield();
+            long capacity2 = bytesStore.readLong(CAPACITY);
+            long readers2 = bytesStore.readLong(READERS);
+            if (capacity2 != capacity || readers2 != readers)
+                throw new IllegalArgumentException("Ring buffer in " + mappedFile.file() +
+                        " has capacity: " + capacity2 + ", readers: " + readers2 +
+                        " but expected capacity: " + capacity + ", readers: " + readers);
+        }
+    }
+
+    private long readerPositionOffset(int reader) {
+        return READER_POSITIONS + (long) reader * CACHE_LINE_SIZE;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public int readers() {
+        return readers;
+    }
+
+    /**
+     * @return the position up to which messages have been published.
+     */
+    public long writePosition() {
+        return bytesStore.readVolatileLong(WRITE_POSITION);
+    }
+
+    /**
+     * @return the read position of the slowest attached reader, or the write position if no
+     * reader is attached.
+     */
+    public long slowestReadPosition() {
+        long slowest = bytesStore.readVolatileLong(WRITE_POSITION);
+        for (int i = 0; i < readers; i++) {
+            long position = bytesStore.readVolatileLong(readerPositionOffset(i));
+            if (position != UNUSED && position < slowest)
+                slowest = position;
+        }
+        return slowest;
+    }
+
+    /**
+     * Write a message only if no attached reader would be lapped.  This method must only be called
+     * by the single writer.
+     *
+     * @param bytes0 the message to write
+     * @return true if written, false if the slowest reader is too far behind.
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     */
+    public boolean offer(@NotNull BytesStore bytes0) {
+        long length = bytes0.readRemaining();
+        long required = required(length);
+        if (writePosition + required - cachedSlowestReadPosition > capacity) {
+            cachedSlowestReadPosition = slowestReadPosition();
+            if (writePosition + required - cachedSlowestReadPosition > capacity)
+                return false;
+        }
+        write0(bytes0, length);
+        return true;
+    }
+
+    /**
+     * Write a message regardless of how far behind the readers are.  Readers which are lapped will
+     * get a {@link ReaderLappedException}.  This method must only be called by the single writer.
+     *
+     * @param bytes0 the message to write
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     */
+    public void write(@NotNull BytesStore bytes0) {
+        long length = bytes0.readRemaining();
+        required(length);
+        write0(bytes0, length);
+    }
+
+    private long required(long length) {
+        int recordSize = checkedRecordSize(length, capacity);
+        long toEnd = capacity - (writePosition & mask);
+        return recordSize <= toEnd ? recordSize : toEnd + recordSize;
+    }
+
+    // length must have been checked by required()
+    private void write0(@NotNull BytesStore bytes0, long length) {
+        long writePosition = this.writePosition;
+        long offset = writePosition & mask;
+        long toEnd = capacity - offset;
+        int recordSize = recordSize(length);
+        long end = writePosition + (recordSize <= toEnd ? recordSize : toEnd + recordSize);
+        // a full fence so readers see the claim before any of the data is overwritten.
+        bytesStore.writeVolatileLong(CLAIM_POSITION, end);
+
+        if (recordSize > toEnd) {
+            bytesStore.writeInt(data + offset, (int) -toEnd);
+            offset = 0;
+        }
+        bytesStore.writeInt(data + offset, (int) length);
+        bytesStore.write(data + offset + LENGTH_SIZE, bytes0, bytes0.readPosition(), length);
+        this.writePosition = end;
+        bytesStore.writeOrderedLong(WRITE_POSITION, end);
+    }
+
+    /**
+     * Attach a reader.  A reader which was previously closed, or has never been used, starts at the
+     * current write position, otherwise it resumes from where it was, e.g. after a restart.  Only
+     * one Reader for each index should be in use at any time.
+     *
+     * @param reader index from 0 to readers() - 1
+     * @return the Reader
+     */
+    @NotNull
+    public Reader reader(int reader) {
+        if (reader < 0 || reader >= readers)
+            throw new IllegalArgumentException("reader: " + reader + " not in the range [0, " + readers + ")");
+        BinaryLongReference position = new BinaryLongReference();
+        position.bytesStore(bytesStore, readerPositionOffset(reader), 8);
+        position.compareAndSwapValue(UNUSED, writePosition());
+        return new Reader(position);
+    }
+
+    @Override
+    public void close() {
+        bytesStore.release();
+        mappedFile.close();
+    }
+
+    public class Reader implements BytesConsumer, Closeable {
+        @NotNull
+        private final BinaryLongReference position;
+        private long readPosition;
+
+        Reader(@NotNull BinaryLongReference position) {
+            this.position = position;
+            this.readPosition = position.getVolatileValue();
+        }
+
+        /**
+         * @return the position of the next message to read.
+         */
+        public long readPosition() {
+            return readPosition;
+        }
+
+        /**
+         * @return how many bytes this reader is behind the writer.
+         */
+        public long lag() {
+            return writePosition() - readPosition;
+        }
+
+        /**
+         * Skip any unread messages, e.g. to recover after being lapped.
+         */
+        public void toEnd() {
+            readPosition = writePosition();
+            position.setOrderedValue(readPosition);
+        }
+
+        /**
+         * Copy the next message into bytes.
+         *
+         * @param bytes to append the message to.
+         * @return false if there was no message to read.
+         * @throws ReaderLappedException if the writer has overwritten the next message.
+         * @throws IllegalStateException if bytes doesn't have enough space for the message.
+         */
+        @Override
+        public boolean read(@NotNull BytesOut bytes) throws ReaderLappedException, IllegalStateException {
+            long readPosition = this.readPosition;
+            if (readPosition >= bytesStore.readVolatileLong(WRITE_POSITION))
+                return false;
+            checkNotLapped(readPosition);
+
+            long offset = data + (readPosition & mask);
+            long next = readPosition;
+            int length = bytesStore.readInt(offset);
+            if (length < 0) {
+                next -= length;
+                offset = data;
+                length = bytesStore.readInt(offset);
+            }
+            long bytesPosition = bytes.writePosition();
+            boolean fits = length >= 0 && length <= bytes.writeRemaining() && offset + LENGTH_SIZE + length <= data + capacity;
+            if (fits)
+                bytes.write(bytesStore, offset + LENGTH_SIZE, length);
+
+            // make sure the data was copied before checking it wasn't overwritten.
+            OS.memory().loadFence();
+            try {
+                checkNotLapped(readPosition);
+            } catch (ReaderLappedException e) {
+                if (fits)
+                    bytes.writePosition(bytesPosition);
+                throw e;
+            }
+            if (!fits)
+                throw new IllegalStateException("Not enough space to read a message of " + length + " bytes, writeRemaining: " + bytes.writeRemaining());
+
+            next += recordSize(length);
+            this.readPosition = next;
+            position.setOrderedValue(next);
+            return true;
+        }
+
+        private void checkNotLapped(long readPosition) throws ReaderLappedException {
+            if (bytesStore.readVolatileLong(CLAIM_POSITION) - readPosition > capacity)
+                throw new ReaderLappedException("Reader at " + readPosition + " lapped by the writer at " + writePosition(), readPosition);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return readPosition >= writePosition();
+        }
+
+        /**
+         * Detach this reader so it no longer holds back the writer.
+         */
+        @Override
+        public void close() {
+            position.setOrderedValue(UNUSED);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.bytes;
 
+import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.io.IORuntimeException;
 import net.openhft.chronicle.core.util.StringUtils;
@@ -309,12 +310,21 @@ public interface Bytes<Underlying> extends
      */
     default Bytes<Underlying> unchecked(boolean unchecked) throws IllegalStateException {
         return unchecked ?
-                start() == 0 && bytesStore() instanceof NativeBytesStore ?
+                start() == 0 && bytesStore() instanceof NativeBytesStore && isNative() ?
                         new UncheckedNativeBytes<>(this) :
                         new UncheckedBytes<>(this) :
                 this;
     }
 
+    /**
+     * @return a reusable ByteBuffer view of the bytes from readPosition() to readLimit(), see
+     * {@link RandomDataInput#byteBufferView(long, int)}
+     */
+    default ByteBuffer byteBufferView()
+            throws BufferUnderflowException, UnsupportedOperationException, IORuntimeException {
+        return byteBufferView(readPosition(), Maths.toInt32(readRemaining()));
+    }
+
     /**
      * @return the size which can be safely read.  If this isElastic() it can be lower than the
      * point it can safely write.
@@ -35,8 +35,14 @@ import java.io.OutputStream;
 import java.io.UTFDataFormatException;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.TimeZone;
 
@@ -59,6 +65,9 @@ enum BytesInternal {
     private static final ThreadLocal<byte[]> NUMBER_BUFFER = ThreadLocal.withInitial(() -> new byte[20]);
     private static final long MAX_VALUE_DIVIDE_10 = Long.MAX_VALUE / 10;
     private static final ThreadLocal<DateCache> dateCacheTL = new ThreadLocal<>();
+    private static final int MAX_VIEW_SIZE = 1 << 30;
+    private static final ThreadLocal<ByteBuffer[]> CHANNEL_VIEWS = ThreadLocal.withInitial(() -> new ByteBuffer[0]);
+    private static final ThreadLocal<byte[]> CHANNEL_BUFFER = ThreadLocal.withInitial(() -> new byte[8 << 10]);
 
     static {
         try {
@@ -111,6 +120,7 @@ enum BytesInternal {
             throws UTFDataFormatRuntimeException, BufferUnderflowException {
         if (bytes instanceof Bytes
                 && ((Bytes) bytes).bytesStore() instanceof NativeBytesStore
+                && bytes.isNative()
                 && appendable instanceof StringBuilder) {
             parseUtf8_SB1((Bytes) bytes, (StringBuilder) appendable, utflen);
         } else {
@@ -1403,7 +1413,8 @@ enum BytesInternal {
             throws BufferUnderflowException, IllegalStateException {
         try {
             if (builder instanceof StringBuilder
-                    && ((Bytes) bytes).bytesStore() instanceof NativeBytesStore) {
+                    && ((Bytes) bytes).bytesStore() instanceof NativeBytesStore
+                    && bytes.isNative()) {
                 Bytes vb = (Bytes) bytes;
                 StringBuilder sb = (StringBuilder) builder;
                 sb.setLength(0);
@@ -2061,6 +2072,139 @@ enum BytesInternal {
         }
     }
 
+    /**
+     * @return a direct ByteBuffer for this thread, pointed at some native memory. It is valid until
+     * this is called again with the same index.
+     */
+    @NotNull
+    static ByteBuffer channelView(int index, long address, int length) {
+        ByteBuffer[] views = CHANNEL_VIEWS.get();
+        if (index >= views.length) {
+            int length0 = views.length;
+            views = Arrays.copyOf(views, Math.max(8, index * 2));
+            for (int i = length0; i < views.length; i++)
+                views[i] = ByteBuffer.allocateDirect(0);
+            CHANNEL_VIEWS.set(views);
+        }
+        return NativeBytesStore.view(views[index], address, length);
+    }
+
+    /**
+     * @return how many of the remaining bytes from position are in one native block of memory, or
+     * 0 if the data at position isn't native or isn't in the current BytesStore.
+     */
+    static int nativeLength(Object bytes, long position, long remaining) {
+        if (!(bytes instanceof Bytes))
+            return 0;
+        BytesStore bs = ((Bytes) bytes).bytesStore();
+        if (!(bs instanceof NativeBytesStore) || !bs.inside(position))
+            return 0;
+        return (int) Math.min(Math.min(remaining, bs.safeLimit() - position), MAX_VIEW_SIZE);
+    }
+
+    static long address(Object bytes, long position) {
+        return ((Bytes) bytes).bytesStore().address(position);
+    }
+
+    public static long writeTo(@NotNull StreamingDataInput in, @NotNull WritableByteChannel channel) throws IOException {
+        long written = 0;
+        while (in.readRemaining() > 0) {
+            long position = in.readPosition();
+            int length = nativeLength(in, position, in.readRemaining());
+            int count;
+            if (length > 0) {
+                count = channel.write(channelView(0, address(in, position), length));
+
+            } else {
+                byte[] buffer = CHANNEL_BUFFER.get();
+                int len = in.read(buffer, 0, (int) Math.min(buffer.length, in.readRemaining()));
+                count = channel.write(ByteBuffer.wrap(buffer, 0, len));
+                in.readPosition(position);
+            }
+            if (count <= 0)
+                break;
+            in.readSkip(count);
+            written += count;
+        }
+        return written;
+    }
+
+    public static int readFrom(@NotNull StreamingDataOutput out, @NotNull ReadableByteChannel channel) throws IOException {
+        long position = out.writePosition();
+        long remaining = out.writeRemaining();
+        if (remaining <= 0)
+            return 0;
+        int length = nativeLength(out, position, remaining);
+        if (length == 0 && out instanceof Bytes && ((Bytes) out).isElastic()) {
+            ((Bytes) out).ensureCapacity(position + Math.min(remaining, CHANNEL_BUFFER.get().length));
+            length = nativeLength(out, position, remaining);
+        }
+        if (length > 0) {
+            int count = channel.read(channelView(0, address(out, position), length));
+            if (count > 0)
+                out.writeSkip(count);
+            return count;
+        }
+        byte[] buffer = CHANNEL_BUFFER.get();
+        int count = channel.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, remaining)));
+        if (count > 0)
+            out.write(buffer, 0, count);
+        return count;
+    }
+
+    public static long writeTo(@NotNull GatheringByteChannel channel, @NotNull Bytes... bytes) throws IOException {
+        ByteBuffer[] bbs = new ByteBuffer[bytes.length];
+        long total = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            Bytes b = bytes[i];
+            long position = b.readPosition();
+            long remaining = b.readRemaining();
+            bbs[i] = nativeLength(b, position, remaining) == remaining
+                    ? channelView(i, address(b, position), (int) remaining)
+                    : ByteBuffer.wrap(toByteArray(b));
+            total += remaining;
+        }
+        long written = 0;
+        while (written < total) {
+            long count = channel.write(bbs);
+            if (count <= 0)
+                break;
+            written += count;
+        }
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i].readSkip(bbs[i].position());
+        return written;
+    }
+
+    public static long readFrom(@NotNull ScatteringByteChannel channel, @NotNull Bytes... bytes) throws IOException {
+        ByteBuffer[] bbs = new ByteBuffer[bytes.length];
+        boolean[] copy = new boolean[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            Bytes b = bytes[i];
+            long position = b.writePosition();
+            long remaining = b.writeRemaining();
+            int length = nativeLength(b, position, remaining);
+            if (length == 0 && remaining > 0 && b.isElastic()) {
+                b.ensureCapacity(position + Math.min(remaining, CHANNEL_BUFFER.get().length));
+                length = nativeLength(b, position, remaining);
+            }
+            if (length > 0 || remaining == 0) {
+                bbs[i] = channelView(i, length > 0 ? address(b, position) : 0, length);
+            } else {
+                bbs[i] = ByteBuffer.allocate((int) Math.min(remaining, CHANNEL_BUFFER.get().length));
+                copy[i] = true;
+            }
+        }
+        long count = channel.read(bbs);
+        for (int i = 0; i < bytes.length; i++) {
+            if (copy[i])
+                bytes[i].write(bbs[i].array(), 0, bbs[i].position());
+            else
+                bytes[i].writeSkip(bbs[i].position());
+        }
+        return count;
+    }
+
     public static Boolean parseBoolean(ByteStringParser parser, StopCharTester tester) {
         StringBuilder sb = acquireStringBuilder();
         parseUtf8(parser, sb, tester);
@@ -26,8 +26,14 @@ import java.lang.reflect.Type;
 import java.util.*;
 import java.util.function.Supplier;
 
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
 /**
  * Created by Peter on 19/04/2016.
+ * <p></p>
+ * Fields are accessed with Unsafe at offsets worked out once per class, rather than through
+ * reflection for every field of every message.  Non-primitive fields, and the elements of arrays,
+ * collections and maps, are written with a BinaryCodec chosen once per field.
  */
 public class BytesMarshaller<T> {
     public static final ClassLocal<BytesMarshaller> BYTES_MARSHALLER_CL
@@ -52,6 +58,10 @@ public class BytesMarshaller<T> {
         }
     }
 
+    FieldAccess[] fields() {
+        return fields;
+    }
+
     public void readMarshallable(ReadBytesMarshallable t, BytesIn in) {
         for (FieldAccess field : fields) {
             field.read(t, in);
@@ -65,10 +75,16 @@ public class BytesMarshaller<T> {
     }
 
     static abstract class FieldAccess<T> {
+        // how a field can be skipped by a reader which doesn't know it, see wireSize()
+        static final int WIRE_LENGTH_PREFIXED = 0;
+        static final int WIRE_STOP_BIT = -1;
+
         final Field field;
+        final long offset;
 
         FieldAccess(Field field) {
             this.field = field;
+            this.offset = UNSAFE.objectFieldOffset(field);
         }
 
         public static Object create(Field field) {
@@ -80,6 +96,8 @@ public class BytesMarshaller<T> {
                     return new ByteFieldAccess(field);
                 case "short":
                     return new ShortFieldAccess(field);
+                case "char":
+                    return new CharFieldAccess(field);
                 case "int":
                     return new IntegerFieldAccess(field);
                 case "float":
@@ -119,43 +137,43 @@ public class BytesMarshaller<T> {
                     '}';
         }
 
+        /**
+         * @return the size of a fixed length field, WIRE_STOP_BIT if it is one stop bit encoded
+         * value, or WIRE_LENGTH_PREFIXED otherwise.
+         */
+        int wireSize() {
+            return WIRE_LENGTH_PREFIXED;
+        }
+
         void write(Object o, BytesOut write) {
-            try {
-                getValue(o, write);
-            } catch (IllegalAccessException iae) {
-                throw new AssertionError(iae);
-            }
+            getValue(o, write);
         }
 
-        protected abstract void getValue(Object o, BytesOut write) throws IllegalAccessException;
+        protected abstract void getValue(Object o, BytesOut write);
 
         void read(Object o, BytesIn read) {
-            try {
-                setValue(o, read);
-            } catch (IllegalAccessException iae) {
-                throw new AssertionError(iae);
-            }
+            setValue(o, read);
         }
 
-        protected abstract void setValue(Object o, BytesIn read) throws IllegalAccessException;
+        protected abstract void setValue(Object o, BytesIn read);
     }
 
     static class ScalarFieldAccess extends FieldAccess<Object> {
+        private final BinaryCodec codec;
+
         public ScalarFieldAccess(Field field) {
             super(field);
+            codec = BinaryCodec.forClass(field.getType());
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            Object o2 = field.get(o);
-            String s = o2 == null ? null : o2.toString();
-            write.writeUtf8(s);
+        protected void getValue(Object o, BytesOut write) {
+            codec.write(UNSAFE.getObject(o, offset), write);
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            String s = read.readUtf8();
-            field.set(o, ObjectUtils.convertTo(field.getType(), s));
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putObject(o, offset, codec.read(read, UNSAFE.getObject(o, offset)));
         }
     }
 
@@ -165,17 +183,17 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            BytesMarshallable o2 = (BytesMarshallable) field.get(o);
+        protected void getValue(Object o, BytesOut write) {
+            BytesMarshallable o2 = (BytesMarshallable) UNSAFE.getObject(o, offset);
             assert o2 != null;
             o2.writeMarshallable(write);
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            BytesMarshallable o2 = (BytesMarshallable) field.get(o);
+        protected void setValue(Object o, BytesIn read) {
+            BytesMarshallable o2 = (BytesMarshallable) UNSAFE.getObject(o, offset);
             if (!field.getType().isInstance(o2))
-                field.set(o, o2 = (BytesMarshallable) ObjectUtils.newInstance((Class) field.getType()));
+                UNSAFE.putObject(o, offset, o2 = (BytesMarshallable) ObjectUtils.newInstance((Class) field.getType()));
 
             o2.readMarshallable(read);
         }
@@ -187,59 +205,57 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            BytesStore bytes = (BytesStore) field.get(o);
+        protected void getValue(Object o, BytesOut write) {
+            BytesStore bytes = (BytesStore) UNSAFE.getObject(o, offset);
             long offset = bytes.readPosition();
             long length = bytes.readRemaining();
             write.writeStopBit(length);
             write.write(bytes, offset, length);
         }
 
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
+        protected void setValue(Object o, BytesIn read) {
             // TODO see if recycling a Bytes is an option.
             long length = read.readStopBit();
             BytesStore bs = NativeBytesStore.nativeStore(length);
             bs.copyTo((BytesStore) read);
             read.readSkip(length);
-            field.set(o, bs);
+            UNSAFE.putObject(o, offset, bs);
         }
     }
 
-    static class ArrayFieldAccess extends FieldAccess {
-        private final Class componentType;
-
+    static class ArrayFieldAccess extends ScalarFieldAccess {
         public ArrayFieldAccess(Field field) {
             super(field);
-            componentType = field.getType().getComponentType();
-        }
-
-        @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
-        }
-
-        @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
         }
     }
 
+    /**
+     * An existing collection of the class this would create is cleared and refilled, reusing the
+     * elements of an ArrayList in place.
+     */
     static class CollectionFieldAccess extends FieldAccess {
         final Supplier<Collection> collectionSupplier;
+        final Class collectionClass;
         private final Class componentType;
         private final Class<?> type;
+        private final BinaryCodec codec;
 
         public CollectionFieldAccess(Field field) {
             super(field);
             type = field.getType();
-            if (type == List.class || type == Collection.class)
+            if (type == List.class || type == Collection.class) {
                 collectionSupplier = ArrayList::new;
-            else if (type == SortedSet.class || type == NavigableSet.class)
+                collectionClass = ArrayList.class;
+            } else if (type == SortedSet.class || type == NavigableSet.class) {
                 collectionSupplier = TreeSet::new;
-            else if (type == Set.class)
+                collectionClass = TreeSet.class;
+            } else if (type == Set.class) {
                 collectionSupplier = LinkedHashSet::new;
-            else
+                collectionClass = LinkedHashSet.class;
+            } else {
                 collectionSupplier = newInstance();
+                collectionClass = type;
+            }
             Type genericType = field.getGenericType();
             if (genericType instanceof ParameterizedType) {
                 ParameterizedType pType = (ParameterizedType) genericType;
@@ -248,44 +264,84 @@ public class BytesMarshaller<T> {
             } else {
                 componentType = Object.class;
             }
+            codec = BinaryCodec.forClass(componentType);
         }
 
         private Supplier<Collection> newInstance() {
-            try {
-                return (Supplier<Collection>) type.newInstance();
-            } catch (InstantiationException e) {
-                throw new AssertionError(e);
-            } catch (IllegalAccessException e) {
-                throw new AssertionError(e);
-            }
+            return () -> (Collection) ObjectUtils.newInstance(type);
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
+        protected void getValue(Object o, BytesOut write) {
+            Collection c = (Collection) UNSAFE.getObject(o, offset);
+            if (c == null) {
+                write.writeStopBit(0);
+                return;
+            }
+            write.writeStopBit(c.size() + 1);
+            for (Object e : c)
+                codec.write(e, write);
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
+        protected void setValue(Object o, BytesIn read) {
+            int length = BinaryCodec.readLength(read);
+            if (length < 0) {
+                UNSAFE.putObject(o, offset, null);
+                return;
+            }
+            Collection c = (Collection) UNSAFE.getObject(o, offset);
+            if (c == null || c.getClass() != collectionClass) {
+                c = collectionSupplier.get();
+                UNSAFE.putObject(o, offset, c);
+            } else if (c instanceof ArrayList) {
+                readInPlace((ArrayList) c, length, read);
+                return;
+            } else {
+                c.clear();
+            }
+            for (int i = 0; i < length; i++)
+                c.add(codec.read(read));
+        }
+
+        private void readInPlace(ArrayList list, int length, BytesIn read) {
+            int size = list.size();
+            for (int i = 0; i < length; i++) {
+                if (i < size)
+                    list.set(i, codec.read(read, list.get(i)));
+                else
+                    list.add(codec.read(read));
+            }
+            for (int i = size - 1; i >= length; i--)
+                list.remove(i);
         }
     }
 
+    /**
+     * An existing map of the class this would create is cleared and refilled.
+     */
     static class MapFieldAccess extends FieldAccess {
         final Supplier<Map> collectionSupplier;
+        final Class mapClass;
         private final Class<?> type;
         private final Class keyType;
         private final Class valueType;
+        private final BinaryCodec keyCodec;
+        private final BinaryCodec valueCodec;
 
         public MapFieldAccess(Field field) {
             super(field);
             type = field.getType();
-            if (type == Map.class)
+            if (type == Map.class) {
                 collectionSupplier = LinkedHashMap::new;
-            else if (type == SortedMap.class || type == NavigableMap.class)
+                mapClass = LinkedHashMap.class;
+            } else if (type == SortedMap.class || type == NavigableMap.class) {
                 collectionSupplier = TreeMap::new;
-            else
+                mapClass = TreeMap.class;
+            } else {
                 collectionSupplier = newInstance();
+                mapClass = type;
+            }
             Type genericType = field.getGenericType();
             if (genericType instanceof ParameterizedType) {
                 ParameterizedType pType = (ParameterizedType) genericType;
@@ -297,26 +353,44 @@ public class BytesMarshaller<T> {
                 keyType = Object.class;
                 valueType = Object.class;
             }
+            keyCodec = BinaryCodec.forClass(keyType);
+            valueCodec = BinaryCodec.forClass(valueType);
         }
 
         private Supplier<Map> newInstance() {
-            try {
-                return (Supplier<Map>) type.newInstance();
-            } catch (InstantiationException e) {
-                throw new AssertionError(e);
-            } catch (IllegalAccessException e) {
-                throw new AssertionError(e);
-            }
+            return () -> (Map) ObjectUtils.newInstance(type);
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
+        protected void getValue(Object o, BytesOut write) {
+            Map<?, ?> m = (Map) UNSAFE.getObject(o, offset);
+            if (m == null) {
+                write.writeStopBit(0);
+                return;
+            }
+            write.writeStopBit(m.size() + 1);
+            for (Map.Entry e : m.entrySet()) {
+                keyCodec.write(e.getKey(), write);
+                valueCodec.write(e.getValue(), write);
+            }
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            throw new UnsupportedOperationException("TODO");
+        protected void setValue(Object o, BytesIn read) {
+            int length = BinaryCodec.readLength(read);
+            if (length < 0) {
+                UNSAFE.putObject(o, offset, null);
+                return;
+            }
+            Map m = (Map) UNSAFE.getObject(o, offset);
+            if (m == null || m.getClass() != mapClass) {
+                m = collectionSupplier.get();
+                UNSAFE.putObject(o, offset, m);
+            } else {
+                m.clear();
+            }
+            for (int i = 0; i < length; i++)
+                m.put(keyCodec.read(read), valueCodec.read(read));
         }
     }
 
@@ -326,13 +400,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeBoolean(field.getBoolean(o));
+        int wireSize() {
+            return 1;
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setBoolean(o, read.readBoolean());
+        protected void getValue(Object o, BytesOut write) {
+            write.writeBoolean(UNSAFE.getBoolean(o, offset));
+        }
+
+        @Override
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putBoolean(o, offset, read.readBoolean());
         }
     }
 
@@ -342,13 +421,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeByte(field.getByte(o));
+        int wireSize() {
+            return 1;
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setByte(o, read.readByte());
+        protected void getValue(Object o, BytesOut write) {
+            write.writeByte(UNSAFE.getByte(o, offset));
+        }
+
+        @Override
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putByte(o, offset, read.readByte());
         }
     }
 
@@ -358,13 +442,39 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeShort(field.getShort(o));
+        int wireSize() {
+            return 2;
+        }
+
+        @Override
+        protected void getValue(Object o, BytesOut write) {
+            write.writeShort(UNSAFE.getShort(o, offset));
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setShort(o, read.readShort());
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putShort(o, offset, read.readShort());
+        }
+    }
+
+    static class CharFieldAccess extends FieldAccess {
+        public CharFieldAccess(Field field) {
+            super(field);
+        }
+
+        @Override
+        int wireSize() {
+            return WIRE_STOP_BIT;
+        }
+
+        @Override
+        protected void getValue(Object o, BytesOut write) {
+            write.writeStopBit(UNSAFE.getChar(o, offset));
+        }
+
+        @Override
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putChar(o, offset, (char) read.readStopBit());
         }
     }
 
@@ -374,13 +484,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeInt(field.getInt(o));
+        int wireSize() {
+            return 4;
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setInt(o, read.readInt());
+        protected void getValue(Object o, BytesOut write) {
+            write.writeInt(UNSAFE.getInt(o, offset));
+        }
+
+        @Override
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putInt(o, offset, read.readInt());
         }
     }
 
@@ -390,13 +505,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeFloat(field.getFloat(o));
+        int wireSize() {
+            return 4;
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setFloat(o, read.readFloat());
+        protected void getValue(Object o, BytesOut write) {
+            write.writeFloat(UNSAFE.getFloat(o, offset));
+        }
+
+        @Override
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putFloat(o, offset, read.readFloat());
         }
     }
 
@@ -406,13 +526,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeLong(field.getLong(o));
+        int wireSize() {
+            return 8;
+        }
+
+        @Override
+        protected void getValue(Object o, BytesOut write) {
+            write.writeLong(UNSAFE.getLong(o, offset));
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setLong(o, read.readLong());
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putLong(o, offset, read.readLong());
         }
     }
 
@@ -422,13 +547,18 @@ public class BytesMarshaller<T> {
         }
 
         @Override
-        protected void getValue(Object o, BytesOut write) throws IllegalAccessException {
-            write.writeDouble(field.getDouble(o));
+        int wireSize() {
+            return 8;
+        }
+
+        @Override
+        protected void getValue(Object o, BytesOut write) {
+            write.writeDouble(UNSAFE.getDouble(o, offset));
         }
 
         @Override
-        protected void setValue(Object o, BytesIn read) throws IllegalAccessException {
-            field.setDouble(o, read.readDouble());
+        protected void setValue(Object o, BytesIn read) {
+            UNSAFE.putDouble(o, offset, read.readDouble());
         }
     }
 }
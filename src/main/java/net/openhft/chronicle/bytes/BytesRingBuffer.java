@@ -18,6 +18,7 @@ package net.openhft.chronicle.bytes;
 
 import net.openhft.chronicle.core.Jvm;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,12 +32,21 @@ public interface BytesRingBuffer extends BytesRingBufferStats, BytesConsumer {
 
     Logger LOG = LoggerFactory.getLogger(BytesRingBuffer.class);
 
+    /**
+     * Uses the commercial ring buffer if it is on the class path, otherwise a single producer,
+     * single consumer {@link SingleProducerBytesRingBuffer}.
+     *
+     * @param bytesStore of at least sizeFor(capacity) bytes
+     * @return a ring buffer using this bytesStore
+     */
     @NotNull
     static BytesRingBuffer newInstance(@NotNull NativeBytesStore<Void> bytesStore) {
         try {
             @NotNull final Class<BytesRingBuffer> aClass = clazz();
             final Constructor<BytesRingBuffer> constructor = aClass.getDeclaredConstructor(BytesStore.class);
             return constructor.newInstance(bytesStore);
+        } catch (ClassNotFoundException e) {
+            return new SingleProducerBytesRingBuffer(bytesStore);
         } catch (Exception e) {
             LOG.error("This is a a commercial feature, please contact " +
                     "sales@higherfrequencytrading.com to unlock this feature.");
@@ -56,6 +66,8 @@ public interface BytesRingBuffer extends BytesRingBufferStats, BytesConsumer {
         try {
             final Method sizeFor = clazz().getMethod("sizeFor", long.class);
             return (long) sizeFor.invoke(null, capacity);
+        } catch (ClassNotFoundException e) {
+            return SingleProducerBytesRingBuffer.sizeFor(capacity);
         } catch (Exception e) {
             LOG.error("This is a a commercial feature, please contact " +
                     "sales@higherfrequencytrading.com to unlock this feature.");
@@ -91,4 +103,60 @@ public interface BytesRingBuffer extends BytesRingBufferStats, BytesConsumer {
 
     long readRemaining();
 
+    /**
+     * Claims space for a message so it can be written in place rather than copied in by {@link
+     * #offer(BytesStore)}. The message is not visible to the consumer until {@link #commit(int)}
+     * is called.
+     * <p></p>
+     * This is an optional operation, supported by the ring buffers in this library.  Other
+     * implementations can leave it unsupported and only accept messages via offer().
+     *
+     * @param maxLength the most bytes which will be written
+     * @return a Bytes which is reused, starting at writePosition() 0 with a writeLimit() of
+     * maxLength, or null if there is not enough space.
+     * @throws UnsupportedOperationException if writing in place is not supported.
+     */
+    @Nullable
+    default Bytes<Void> claim(int maxLength) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Publishes the message last claimed by this thread.  This is an optional operation, supported
+     * when {@link #claim(int)} is.
+     *
+     * @param actualLength the bytes written, typically the writePosition() of the claimed Bytes.
+     * @throws IllegalStateException         if nothing was claimed
+     * @throws UnsupportedOperationException if writing in place is not supported.
+     */
+    default void commit(int actualLength) throws IllegalStateException, UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Passes up to {@code maxMessages} messages to the handler.  The Bytes passed to the handler is
+     * reused and is only valid for the duration of the call.
+     * <p></p>
+     * This implementation copies each message out with {@link #read(BytesOut)}.  The ring buffers in
+     * this library override it to pass the messages without copying them, and free the space for
+     * all of them with a single ordered write.
+     *
+     * @param handler     to read each message
+     * @param maxMessages the most messages to read
+     * @return the number of messages read, 0 if this queue is empty.
+     */
+    default int drainTo(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+        if (maxMessages <= 0 || isEmpty())
+            return 0;
+        Bytes<Void> bytes = Bytes.allocateElasticDirect();
+        try {
+            int count = 0;
+            for (; count < maxMessages && read(bytes.clear()); count++)
+                handler.readMarshallable(bytes);
+            return count;
+        } finally {
+            bytes.release();
+        }
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.BytesMarshaller.FieldAccess;
+import net.openhft.chronicle.core.util.ObjectUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.openhft.chronicle.bytes.BytesMarshaller.FieldAccess.WIRE_LENGTH_PREFIXED;
+import static net.openhft.chronicle.bytes.BytesMarshaller.FieldAccess.WIRE_STOP_BIT;
+
+/**
+ * Reads a stream written by a BytesSchemaWriter, matching fields by name and type and skipping any
+ * this version of the class doesn't have.  Fields which weren't written are left unchanged.
+ * <p></p>
+ * The headers are kept for the stream, and how to read each one into a local class is worked out
+ * once, so reading a message is a loop over an array of fields.  One BytesSchemaReader must be
+ * used for each stream, from the start of the stream.
+ */
+public class BytesSchemaReader {
+    private final List<StreamSchema> schemas = new ArrayList<>();
+
+    /**
+     * Read the next message.
+     *
+     * @param in    to read from
+     * @param using to read into, or null to create an instance of the class named in the header.
+     * @return the object read.
+     * @throws IllegalStateException if the message refers to a header this reader hasn't seen.
+     */
+    @NotNull
+    public <T extends ReadBytesMarshallable> T read(@NotNull BytesIn in, @Nullable T using)
+            throws IllegalStateException {
+        long header = in.readStopBit();
+        int id = (int) (header >>> 1);
+        if ((header & 1) != 0) {
+            if (id != schemas.size())
+                throw new IllegalStateException("Header for schema " + id + " out of order, expected " + schemas.size());
+            schemas.add(new StreamSchema(in));
+        } else if (id >= schemas.size()) {
+            throw new IllegalStateException("Unknown schema " + id + ", the stream must be read from the start");
+        }
+        StreamSchema schema = schemas.get(id);
+        if (using == null)
+            using = (T) ObjectUtils.newInstance(schema.type());
+        schema.read(using, in);
+        return using;
+    }
+
+    /**
+     * Start reading a new stream.
+     */
+    public void reset() {
+        schemas.clear();
+    }
+
+    static final class StreamSchema {
+        final String className;
+        final String[] names;
+        final String[] typeNames;
+        final int[] wireSizes;
+        // the class named in the stream, once loaded.
+        @Nullable
+        Class namedType;
+        // the class the accesses were matched for.
+        @Nullable
+        Class type;
+        // the local field for each field in the stream, or null to skip it.
+        FieldAccess[] accesses;
+
+        StreamSchema(@NotNull BytesIn in) {
+            className = in.readUtf8();
+            int count = (int) in.readStopBit();
+            names = new String[count];
+            typeNames = new String[count];
+            wireSizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = in.readUtf8();
+                typeNames[i] = in.readUtf8();
+                wireSizes[i] = in.readByte();
+            }
+        }
+
+        @NotNull
+        Class type() {
+            Class namedType = this.namedType;
+            if (namedType == null) {
+                try {
+                    this.namedType = namedType = Class.forName(className);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("No class " + className + " to read into", e);
+                }
+            }
+            return namedType;
+        }
+
+        void read(@NotNull Object t, @NotNull BytesIn in) {
+            if (t.getClass() != type)
+                match(t.getClass());
+            FieldAccess[] accesses = this.accesses;
+            int[] wireSizes = this.wireSizes;
+            for (int i = 0; i < accesses.length; i++) {
+                FieldAccess access = accesses[i];
+                int size = wireSizes[i];
+                if (size == WIRE_LENGTH_PREFIXED) {
+                    long length = in.readStopBit();
+                    if (access == null) {
+                        in.readSkip(length);
+                    } else {
+                        long end = in.readPosition() + length;
+                        access.read(t, in);
+                        in.readPosition(end);
+                    }
+                } else if (access != null) {
+                    access.read(t, in);
+                } else if (size == WIRE_STOP_BIT) {
+                    in.readStopBit();
+                } else {
+                    in.readSkip(size);
+                }
+            }
+        }
+
+        private void match(@NotNull Class localType) {
+            Map<String, FieldAccess> local = new HashMap<>();
+            for (FieldAccess access : BytesMarshaller.BYTES_MARSHALLER_CL.get(localType).fields())
+                local.put(access.field.getName(), access);
+            FieldAccess[] accesses = new FieldAccess[names.length];
+            for (int i = 0; i < names.length; i++) {
+                FieldAccess access = local.get(names[i]);
+                if (access != null
+                        && access.field.getType().getName().equals(typeNames[i])
+                        && access.wireSize() == wireSizes[i])
+                    accesses[i] = access;
+            }
+            this.accesses = accesses;
+            this.type = localType;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.BytesMarshaller.FieldAccess;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes BytesMarshallable objects to one stream in a format which can be read after fields have
+ * been added, removed or reordered, so writers and readers can be upgraded independently.
+ * <p></p>
+ * The first time a class is written to the stream, a header with the name, type and wire size of
+ * each field is written, and later messages refer to it by a small id.  Fixed size fields are
+ * written as by BytesMarshaller, and variable length fields are prefixed with their length so a
+ * reader can skip fields it doesn't know.  Nested objects are written by BytesMarshaller within
+ * their field.
+ * <p></p>
+ * One BytesSchemaWriter must be used for each stream, from one thread at a time, and read with
+ * a BytesSchemaReader from the start of the stream.  It must be closed to free its buffer.
+ */
+public class BytesSchemaWriter implements Closeable {
+    private final Map<Class, ClassSchema> schemas = new IdentityHashMap<>();
+    private final Bytes<ByteBuffer> scratch = Bytes.elasticByteBuffer();
+
+    public void write(@NotNull WriteBytesMarshallable t, @NotNull BytesOut out) {
+        ClassSchema schema = schemas.get(t.getClass());
+        if (schema == null) {
+            schema = new ClassSchema(t.getClass(), schemas.size());
+            schemas.put(t.getClass(), schema);
+            out.writeStopBit((schema.id << 1) | 1);
+            schema.writeHeader(out);
+        } else {
+            out.writeStopBit(schema.id << 1);
+        }
+
+        FieldAccess[] fields = schema.fields;
+        boolean[] lengthPrefixed = schema.lengthPrefixed;
+        for (int i = 0; i < fields.length; i++) {
+            if (lengthPrefixed[i]) {
+                scratch.clear();
+                fields[i].write(t, scratch);
+                out.writeStopBit(scratch.readRemaining());
+                out.write(scratch);
+            } else {
+                fields[i].write(t, out);
+            }
+        }
+    }
+
+    /**
+     * Start a new stream, so headers will be written again.
+     */
+    public void reset() {
+        schemas.clear();
+    }
+
+    @Override
+    public void close() {
+        scratch.release();
+    }
+
+    static final class ClassSchema {
+        final Class type;
+        final int id;
+        final FieldAccess[] fields;
+        final boolean[] lengthPrefixed;
+
+        ClassSchema(Class type, int id) {
+            this.type = type;
+            this.id = id;
+            this.fields = BytesMarshaller.BYTES_MARSHALLER_CL.get(type).fields();
+            this.lengthPrefixed = new boolean[fields.length];
+            for (int i = 0; i < fields.length; i++)
+                lengthPrefixed[i] = fields[i].wireSize() == FieldAccess.WIRE_LENGTH_PREFIXED;
+        }
+
+        void writeHeader(@NotNull BytesOut out) {
+            out.writeUtf8(type.getName());
+            out.writeStopBit(fields.length);
+            for (FieldAccess field : fields) {
+                out.writeUtf8(field.field.getName());
+                out.writeUtf8(field.field.getType().getName());
+                out.writeByte((byte) field.wireSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the largest size needed by a call site, so elastic Bytes can be allocated large
+ * enough to start with instead of growing and copying while they warm up.  Typically held in a
+ * static field for each call site or class, e.g.
+ * <pre>
+ * static final BytesSizeHint HINT = new BytesSizeHint(256, 1 &lt;&lt; 20);
+ *
+ * NativeBytes&lt;Void&gt; bytes = HINT.nativeBytes();
+ * // write to bytes
+ * HINT.record(bytes);
+ * </pre>
+ */
+public class BytesSizeHint {
+    private final long initialCapacity;
+    private final long maxCapacity;
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param initialCapacity to use before any sizes are recorded
+     * @param maxCapacity     the largest hint to give, so an unusually large size isn't kept.
+     */
+    public BytesSizeHint(long initialCapacity, long maxCapacity) {
+        if (initialCapacity <= 0 || maxCapacity < initialCapacity)
+            throw new IllegalArgumentException("initialCapacity: " + initialCapacity + ", maxCapacity: " + maxCapacity);
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the capacity to allocate.
+     */
+    public long capacity() {
+        return Math.max(initialCapacity, max.get());
+    }
+
+    /**
+     * @return elastic Bytes with the hinted capacity.
+     */
+    @NotNull
+    public NativeBytes<Void> nativeBytes() {
+        return NativeBytes.nativeBytes(capacity());
+    }
+
+    /**
+     * Record the size written to these bytes.
+     */
+    public void record(@NotNull BytesStore bytes) {
+        record(bytes.writePosition() - bytes.start());
+    }
+
+    /**
+     * Record a size needed.
+     */
+    public void record(long size) {
+        size = Math.min(size, maxCapacity);
+        for (long max0; size > (max0 = max.get()); )
+            if (max.compareAndSet(max0, size))
+                return;
+    }
+}
@@ -20,9 +20,12 @@ import net.openhft.chronicle.core.annotation.NotNull;
 import net.openhft.chronicle.core.io.IORuntimeException;
 import net.openhft.chronicle.core.util.StringUtils;
 
+import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -135,6 +138,27 @@ public enum BytesUtil {
         sb.append(bytes);
     }
 
+    /**
+     * Write the readable bytes of several Bytes with gathering writes, moving the read position of
+     * each past the bytes written.
+     *
+     * @return the number of bytes written, which can be less than the total for a non blocking
+     * channel.
+     */
+    public static long writeTo(@NotNull GatheringByteChannel channel, @NotNull Bytes... bytes) throws IOException {
+        return BytesInternal.writeTo(channel, bytes);
+    }
+
+    /**
+     * Read once from a channel into the space after the write position of several Bytes, filling
+     * each in turn.
+     *
+     * @return the number of bytes read, or -1 at the end of the stream.
+     */
+    public static long readFrom(@NotNull ScatteringByteChannel channel, @NotNull Bytes... bytes) throws IOException {
+        return BytesInternal.readFrom(channel, bytes);
+    }
+
     public static void readMarshallable(ReadBytesMarshallable marshallable, BytesIn bytes) {
         BytesMarshaller.BYTES_MARSHALLER_CL.get(marshallable.getClass())
                 .readMarshallable(marshallable, bytes);
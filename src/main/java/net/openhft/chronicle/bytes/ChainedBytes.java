@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Elastic Bytes made of a chain of fixed size native segments, see {@link ChainedBytesStore}.
+ * <p></p>
+ * Unlike NativeBytes, growing never copies the data already written, which suits large or
+ * unpredictable messages which are built up and then written to a channel in one gathering write.
+ */
+public class ChainedBytes extends AbstractBytes<Void> {
+    @NotNull
+    private final ChainedBytesStore chain;
+
+    ChainedBytes(@NotNull ChainedBytesStore chain) throws IllegalStateException {
+        super((BytesStore) chain, 0, MAX_CAPACITY);
+        this.chain = chain;
+    }
+
+    @NotNull
+    public static ChainedBytes chainedBytes() {
+        return chainedBytes(ChainedBytesStore.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize the size of each segment, rounded up to a power of 2.
+     */
+    @NotNull
+    public static ChainedBytes chainedBytes(long segmentSize) {
+        ChainedBytesStore chain = new ChainedBytesStore(segmentSize);
+        try {
+            return new ChainedBytes(chain);
+        } catch (IllegalStateException e) {
+            throw new AssertionError(e);
+        } finally {
+            chain.release();
+        }
+    }
+
+    public long segmentSize() {
+        return chain.segmentSize();
+    }
+
+    public int segmentCount() {
+        return chain.segmentCount();
+    }
+
+    /**
+     * Write the readable bytes to a channel with a gathering write across the segments, and move
+     * the read position past the bytes written.
+     *
+     * @return the number of bytes written, which can be less than readRemaining() for a non
+     * blocking channel.
+     */
+    public long writeTo(@NotNull GatheringByteChannel channel) throws IOException {
+        long written = chain.writeTo(channel, readPosition(), readLimit());
+        readSkip(written);
+        return written;
+    }
+
+    @Override
+    public long writeTo(@NotNull WritableByteChannel channel) throws IOException {
+        return channel instanceof GatheringByteChannel
+                ? writeTo((GatheringByteChannel) channel)
+                : super.writeTo(channel);
+    }
+
+    @Override
+    public long capacity() {
+        return MAX_CAPACITY;
+    }
+
+    @Override
+    public long realCapacity() {
+        return chain.capacity();
+    }
+
+    @Override
+    public boolean isElastic() {
+        return true;
+    }
+
+    @Override
+    public boolean isNative() {
+        return false;
+    }
+
+    @Override
+    public boolean sharedMemory() {
+        return false;
+    }
+
+    @Override
+    protected void writeCheckOffset(long offset, long adding)
+            throws BufferOverflowException, IllegalArgumentException, IORuntimeException {
+        if (offset + adding > chain.capacity()) {
+            if (offset < 0 || offset + adding > writeLimit())
+                throw new BufferOverflowException();
+            chain.ensureCapacity(offset + adding);
+        }
+    }
+
+    @Override
+    public byte readVolatileByte(long offset) throws BufferUnderflowException {
+        return chain.readVolatileByte(offset);
+    }
+
+    @Override
+    public short readVolatileShort(long offset) throws BufferUnderflowException {
+        return chain.readVolatileShort(offset);
+    }
+
+    @Override
+    public int readVolatileInt(long offset) throws BufferUnderflowException {
+        return chain.readVolatileInt(offset);
+    }
+
+    @Override
+    public long readVolatileLong(long offset) throws BufferUnderflowException {
+        return chain.readVolatileLong(offset);
+    }
+
+    @Override
+    public void ensureCapacity(long size) throws IllegalArgumentException {
+        chain.ensureCapacity(size);
+    }
+
+    @NotNull
+    @Override
+    public BytesStore<Bytes<Void>, Void> copy() {
+        return NativeBytes.copyOf(this);
+    }
+}
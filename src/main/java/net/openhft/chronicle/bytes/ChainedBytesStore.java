@@ -0,0 +1,524 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.ReferenceCounter;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.nio.ch.DirectBuffer;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * A BytesStore made of a chain of fixed size, power of 2, native segments.  It grows by adding
+ * segments so the data already written is never copied.
+ * <p></p>
+ * An access which fits in one segment goes straight to memory; one which spans a boundary is split
+ * into its bytes.  Volatile, ordered and CAS operations must not span a boundary, which is never
+ * the case for aligned accesses. There is no single address for the data so address() is not
+ * supported.
+ */
+public class ChainedBytesStore extends AbstractBytesStore<ChainedBytesStore, Void> {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 10;
+
+    private static final Memory MEMORY = OS.memory();
+
+    private final ReferenceCounter refCount = ReferenceCounter.onReleased(this::performRelease);
+    private final int segmentBits;
+    private final long segmentSize;
+    private final long segmentMask;
+    private NativeBytesStore[] segments = new NativeBytesStore[4];
+    private long[] addresses = new long[4];
+    private int segmentCount;
+
+    /**
+     * @param segmentSize the size of each segment, rounded up to a power of 2 of at least 64 bytes.
+     */
+    public ChainedBytesStore(long segmentSize) {
+        this.segmentSize = Maths.nextPower2(segmentSize, 64);
+        if (this.segmentSize > 1 << 30)
+            throw new IllegalArgumentException("segmentSize: " + segmentSize);
+        this.segmentBits = Long.numberOfTrailingZeros(this.segmentSize);
+        this.segmentMask = this.segmentSize - 1;
+    }
+
+    public long segmentSize() {
+        return segmentSize;
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Add segments until there is at least capacity bytes.
+     */
+    public void ensureCapacity(long capacity) {
+        if (capacity > (long) Integer.MAX_VALUE << segmentBits)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        while (capacity() < capacity)
+            addSegment();
+    }
+
+    private void addSegment() {
+        if (segmentCount == segments.length) {
+            int length = segmentCount * 2;
+            segments = Arrays.copyOf(segments, length);
+            addresses = Arrays.copyOf(addresses, length);
+        }
+        NativeBytesStore<Void> segment = NativeBytesStore.lazyNativeBytesStoreWithFixedCapacity(segmentSize);
+        segments[segmentCount] = segment;
+        addresses[segmentCount] = segment.address;
+        segmentCount++;
+    }
+
+    /**
+     * Write the bytes from position to limit to a channel, with one gathering write per call to the
+     * channel for all the segments in the range.
+     *
+     * @return the number of bytes written, which can be less than requested for a non blocking channel.
+     */
+    public long writeTo(@NotNull GatheringByteChannel channel, long position, long limit) throws IOException {
+        if (position < 0 || limit > capacity() || position > limit)
+            throw new BufferUnderflowException();
+        long written = 0;
+        while (position < limit) {
+            int first = (int) (position >>> segmentBits);
+            int last = (int) ((limit - 1) >>> segmentBits);
+            ByteBuffer[] bbs = new ByteBuffer[last - first + 1];
+            for (int i = first; i <= last; i++) {
+                ByteBuffer bb = segments[i].byteBufferView(0, (int) segmentSize);
+                bb.limit(i == last ? (int) (((limit - 1) & segmentMask) + 1) : (int) segmentSize);
+                bb.position(i == first ? (int) (position & segmentMask) : 0);
+                bbs[i - first] = bb;
+            }
+            long count = channel.write(bbs);
+            if (count <= 0)
+                break;
+            written += count;
+            position += count;
+        }
+        return written;
+    }
+
+    private void performRelease() {
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i].release();
+            segments[i] = null;
+            addresses[i] = 0;
+        }
+        segmentCount = 0;
+    }
+
+    @Override
+    public void reserve() throws IllegalStateException {
+        refCount.reserve();
+    }
+
+    @Override
+    public void release() throws IllegalStateException {
+        refCount.release();
+    }
+
+    @Override
+    public long refCount() {
+        return refCount.get();
+    }
+
+    @Override
+    public long capacity() {
+        return (long) segmentCount << segmentBits;
+    }
+
+    @Nullable
+    @Override
+    public Void underlyingObject() {
+        return null;
+    }
+
+    @Override
+    public boolean isNative() {
+        return false;
+    }
+
+    @Override
+    public boolean sharedMemory() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public BytesStore<ChainedBytesStore, Void> copy() {
+        ChainedBytesStore copy = new ChainedBytesStore(segmentSize);
+        copy.ensureCapacity(capacity());
+        for (int i = 0; i < segmentCount; i++)
+            MEMORY.copyMemory(addresses[i], copy.addresses[i], segmentSize);
+        return copy;
+    }
+
+    @Override
+    public void move(long from, long to, long length) {
+        if (from < 0 || to < 0 || from + length > capacity() || to + length > capacity())
+            throw new BufferUnderflowException();
+        if (to < from) {
+            for (long i = 0; i < length; i++)
+                writeByte(to + i, readByte(from + i));
+        } else {
+            for (long i = length - 1; i >= 0; i--)
+                writeByte(to + i, readByte(from + i));
+        }
+    }
+
+    private void readCheck(long offset, int size) throws BufferUnderflowException {
+        if (offset < 0 || offset + size > capacity())
+            throw new BufferUnderflowException();
+    }
+
+    private void writeCheck(long offset, int size) throws BufferOverflowException {
+        if (offset < 0 || offset + size > capacity())
+            throw new BufferOverflowException();
+    }
+
+    /**
+     * @return the address of offset if size bytes fit in its segment, otherwise 0.
+     */
+    private long addressOf(long offset, int size) {
+        long pos = offset & segmentMask;
+        return pos + size <= segmentSize ? addresses[(int) (offset >>> segmentBits)] + pos : 0;
+    }
+
+    private long atomicAddressOf(long offset, int size) {
+        long address = addressOf(offset, size);
+        if (address == 0)
+            throw new IllegalArgumentException("Offset " + offset + " of size " + size + " spans a segment boundary");
+        return address;
+    }
+
+    private long readSplit(long offset, int size) {
+        long value = 0;
+        for (int i = size - 1; i >= 0; i--)
+            value = (value << 8) | (readByte(offset + i) & 0xFF);
+        return value;
+    }
+
+    private void writeSplit(long offset, int size, long value) {
+        for (int i = 0; i < size; i++, value >>>= 8)
+            writeByte(offset + i, (byte) value);
+    }
+
+    @Override
+    public byte readByte(long offset) throws BufferUnderflowException {
+        readCheck(offset, 1);
+        return MEMORY.readByte(addresses[(int) (offset >>> segmentBits)] + (offset & segmentMask));
+    }
+
+    @Override
+    public short readShort(long offset) throws BufferUnderflowException {
+        readCheck(offset, 2);
+        long address = addressOf(offset, 2);
+        return address == 0 ? (short) readSplit(offset, 2) : MEMORY.readShort(address);
+    }
+
+    @Override
+    public int readInt(long offset) throws BufferUnderflowException {
+        readCheck(offset, 4);
+        long address = addressOf(offset, 4);
+        return address == 0 ? (int) readSplit(offset, 4) : MEMORY.readInt(address);
+    }
+
+    @Override
+    public long readLong(long offset) throws BufferUnderflowException {
+        readCheck(offset, 8);
+        long address = addressOf(offset, 8);
+        return address == 0 ? readSplit(offset, 8) : MEMORY.readLong(address);
+    }
+
+    @Override
+    public float readFloat(long offset) throws BufferUnderflowException {
+        return Float.intBitsToFloat(readInt(offset));
+    }
+
+    @Override
+    public double readDouble(long offset) throws BufferUnderflowException {
+        return Double.longBitsToDouble(readLong(offset));
+    }
+
+    @Override
+    public byte readVolatileByte(long offset) throws BufferUnderflowException {
+        readCheck(offset, 1);
+        return MEMORY.readVolatileByte(atomicAddressOf(offset, 1));
+    }
+
+    @Override
+    public short readVolatileShort(long offset) throws BufferUnderflowException {
+        readCheck(offset, 2);
+        return MEMORY.readVolatileShort(atomicAddressOf(offset, 2));
+    }
+
+    @Override
+    public int readVolatileInt(long offset) throws BufferUnderflowException {
+        readCheck(offset, 4);
+        return MEMORY.readVolatileInt(atomicAddressOf(offset, 4));
+    }
+
+    @Override
+    public long readVolatileLong(long offset) throws BufferUnderflowException {
+        readCheck(offset, 8);
+        return MEMORY.readVolatileLong(atomicAddressOf(offset, 8));
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        writeCheck(offset, 4);
+        return MEMORY.compareAndSwapInt(atomicAddressOf(offset, 4), expected, value);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        writeCheck(offset, 8);
+        return MEMORY.compareAndSwapLong(atomicAddressOf(offset, 8), expected, value);
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeByte(long offset, byte i8) throws BufferOverflowException {
+        writeCheck(offset, 1);
+        MEMORY.writeByte(addresses[(int) (offset >>> segmentBits)] + (offset & segmentMask), i8);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeShort(long offset, short i16) throws BufferOverflowException {
+        writeCheck(offset, 2);
+        long address = addressOf(offset, 2);
+        if (address == 0)
+            writeSplit(offset, 2, i16);
+        else
+            MEMORY.writeShort(address, i16);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeInt(long offset, int i32) throws BufferOverflowException {
+        writeCheck(offset, 4);
+        long address = addressOf(offset, 4);
+        if (address == 0)
+            writeSplit(offset, 4, i32);
+        else
+            MEMORY.writeInt(address, i32);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeLong(long offset, long i64) throws BufferOverflowException {
+        writeCheck(offset, 8);
+        long address = addressOf(offset, 8);
+        if (address == 0)
+            writeSplit(offset, 8, i64);
+        else
+            MEMORY.writeLong(address, i64);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeFloat(long offset, float f) throws BufferOverflowException {
+        return writeInt(offset, Float.floatToRawIntBits(f));
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeDouble(long offset, double d) throws BufferOverflowException {
+        return writeLong(offset, Double.doubleToRawLongBits(d));
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeOrderedInt(long offset, int i32) throws BufferOverflowException {
+        writeCheck(offset, 4);
+        MEMORY.writeOrderedInt(atomicAddressOf(offset, 4), i32);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore writeOrderedLong(long offset, long i64) throws BufferOverflowException {
+        writeCheck(offset, 8);
+        MEMORY.writeOrderedLong(atomicAddressOf(offset, 8), i64);
+        return this;
+    }
+
+    @Override
+    public ChainedBytesStore writeVolatileByte(long offset, byte i8) throws BufferOverflowException {
+        writeCheck(offset, 1);
+        MEMORY.writeVolatileByte(atomicAddressOf(offset, 1), i8);
+        return this;
+    }
+
+    @Override
+    public ChainedBytesStore writeVolatileShort(long offset, short i16) throws BufferOverflowException {
+        writeCheck(offset, 2);
+        MEMORY.writeVolatileShort(atomicAddressOf(offset, 2), i16);
+        return this;
+    }
+
+    @Override
+    public ChainedBytesStore writeVolatileInt(long offset, int i32) throws BufferOverflowException {
+        writeCheck(offset, 4);
+        MEMORY.writeVolatileInt(atomicAddressOf(offset, 4), i32);
+        return this;
+    }
+
+    @Override
+    public ChainedBytesStore writeVolatileLong(long offset, long i64) throws BufferOverflowException {
+        writeCheck(offset, 8);
+        MEMORY.writeVolatileLong(atomicAddressOf(offset, 8), i64);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore write(long offsetInRDO, byte[] bytes, int offset, int length)
+            throws BufferOverflowException {
+        if (offsetInRDO < 0 || offsetInRDO + length > capacity())
+            throw new BufferOverflowException();
+        while (length > 0) {
+            long pos = offsetInRDO & segmentMask;
+            int len = (int) Math.min(length, segmentSize - pos);
+            MEMORY.copyMemory(bytes, offset, addresses[(int) (offsetInRDO >>> segmentBits)] + pos, len);
+            offsetInRDO += len;
+            offset += len;
+            length -= len;
+        }
+        return this;
+    }
+
+    @Override
+    public void write(long offsetInRDO, @NotNull ByteBuffer bytes, int offset, int length)
+            throws BufferOverflowException {
+        if (offsetInRDO < 0 || offsetInRDO + length > capacity())
+            throw new BufferOverflowException();
+        while (length > 0) {
+            long pos = offsetInRDO & segmentMask;
+            int len = (int) Math.min(length, segmentSize - pos);
+            long address = addresses[(int) (offsetInRDO >>> segmentBits)] + pos;
+            if (bytes.isDirect())
+                MEMORY.copyMemory(((DirectBuffer) bytes).address() + offset, address, len);
+            else
+                MEMORY.copyMemory(bytes.array(), bytes.arrayOffset() + offset, address, len);
+            offsetInRDO += len;
+            offset += len;
+            length -= len;
+        }
+    }
+
+    @NotNull
+    @Override
+    public ChainedBytesStore write(long offsetInRDO, @NotNull RandomDataInput bytes, long offset, long length)
+            throws BufferOverflowException, BufferUnderflowException, IORuntimeException {
+        if (offsetInRDO < 0 || offsetInRDO + length > capacity())
+            throw new BufferOverflowException();
+        while (length > 0) {
+            long pos = offsetInRDO & segmentMask;
+            long len = Math.min(length, segmentSize - pos);
+            segments[(int) (offsetInRDO >>> segmentBits)].write(pos, bytes, offset, len);
+            offsetInRDO += len;
+            offset += len;
+            length -= len;
+        }
+        return this;
+    }
+
+    @Override
+    public long read(long offsetInRDI, byte[] bytes, int offset, int length) {
+        int len = (int) Math.min(length, readLimit() - offsetInRDI);
+        if (offsetInRDI < 0 || len < 0)
+            throw new BufferUnderflowException();
+        for (int done = 0; done < len; ) {
+            long pos = (offsetInRDI + done) & segmentMask;
+            int len2 = (int) Math.min(len - done, segmentSize - pos);
+            segments[(int) ((offsetInRDI + done) >>> segmentBits)].read(pos, bytes, offset + done, len2);
+            done += len2;
+        }
+        return len;
+    }
+
+    @Override
+    public void nativeRead(long position, long address, long size) {
+        if (position < 0 || position + size > capacity())
+            throw new BufferUnderflowException();
+        while (size > 0) {
+            long pos = position & segmentMask;
+            long len = Math.min(size, segmentSize - pos);
+            MEMORY.copyMemory(addresses[(int) (position >>> segmentBits)] + pos, address, len);
+            position += len;
+            address += len;
+            size -= len;
+        }
+    }
+
+    @Override
+    public void nativeWrite(long address, long position, long size) {
+        if (position < 0 || position + size > capacity())
+            throw new BufferOverflowException();
+        while (size > 0) {
+            long pos = position & segmentMask;
+            long len = Math.min(size, segmentSize - pos);
+            MEMORY.copyMemory(address, addresses[(int) (position >>> segmentBits)] + pos, len);
+            position += len;
+            address += len;
+            size -= len;
+        }
+    }
+
+    @Override
+    public long address(long offset) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        try {
+            return BytesInternal.toString(this);
+        } catch (IllegalStateException | IORuntimeException e) {
+            return e.toString();
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        try {
+            return obj instanceof BytesStore && BytesInternal.contentEqual(this, (BytesStore) obj);
+        } catch (IORuntimeException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An aligned native buffer holding a window of a file, for SequentialFileWriter and
+ * SequentialFileReader.  Offsets are positions in the file, mapped to memory relative to start().
+ */
+final class FileBufferBytesStore extends NativeBytesStore<Void> {
+    static final int ALIGNMENT = OS.pageSize();
+    private static final Logger LOG = LoggerFactory.getLogger(FileBufferBytesStore.class);
+
+    final long size;
+    private final ByteBuffer io = ByteBuffer.allocateDirect(0);
+    private long start = 0;
+    private long validStart = 0;
+    private long limit = 0;
+    @Nullable
+    private Future<?> pending;
+
+    private FileBufferBytesStore(long address, long size, @NotNull Runnable deallocator) {
+        super(address, size, deallocator, false);
+        this.size = size;
+    }
+
+    /**
+     * @param size of the buffer, rounded up to the alignment.
+     */
+    @NotNull
+    static FileBufferBytesStore allocate(long size) {
+        long size2 = alignUp(size);
+        Memory memory = OS.memory();
+        long rawSize = size2 + ALIGNMENT;
+        long rawAddress = memory.allocate(rawSize);
+        long address = alignUp(rawAddress);
+        return new FileBufferBytesStore(address, size2, new Deallocator(rawAddress, rawSize));
+    }
+
+    static long alignDown(long position) {
+        return position & -ALIGNMENT;
+    }
+
+    static long alignUp(long position) {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Try to open a file for direct IO so reads and writes bypass the page cache.  Java 8 has no
+     * way to do this, however later versions have ExtendedOpenOption.DIRECT.
+     *
+     * @return the channel, or null if direct IO isn't available.
+     */
+    @Nullable
+    static FileChannel openDirect(@NotNull Path path, @NotNull OpenOption... options) {
+        try {
+            Class extended = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            OpenOption[] options2 = new OpenOption[options.length + 1];
+            System.arraycopy(options, 0, options2, 0, options.length);
+            options2[options.length] = (OpenOption) Enum.valueOf(extended, "DIRECT");
+            return FileChannel.open(path, options2);
+        } catch (Exception e) {
+            LOG.debug("Direct IO not available for " + path, e);
+            return null;
+        }
+    }
+
+    @NotNull
+    static FileChannel open(@NotNull Path path, boolean direct, @NotNull OpenOption... options) throws IOException {
+        FileChannel channel = direct ? openDirect(path, options) : null;
+        return channel == null ? FileChannel.open(path, options) : channel;
+    }
+
+    @NotNull
+    static ExecutorService newExecutor(@NotNull String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    static void shutdown(@NotNull ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param start      the position in the file of the first byte of memory.
+     * @param validStart the position of the first byte which can be accessed.
+     * @param limit      the position after the last byte which can be accessed.
+     */
+    void window(long start, long validStart, long limit) {
+        this.start = start;
+        this.validStart = validStart;
+        this.limit = limit;
+        this.maximumLimit = start + size;
+    }
+
+    @Override
+    public long start() {
+        return start;
+    }
+
+    long validStart() {
+        return validStart;
+    }
+
+    @Override
+    public long safeLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean inside(long offset) {
+        return validStart <= offset && offset < limit;
+    }
+
+    /**
+     * @return a direct ByteBuffer over memory from position to position + length, for the IO thread.
+     */
+    @NotNull
+    ByteBuffer ioBuffer(long position, int length) {
+        return view(io, address + position - start, length);
+    }
+
+    void pending(@Nullable Future<?> pending) {
+        this.pending = pending;
+    }
+
+    /**
+     * Wait for the background read or write of this buffer to finish.
+     */
+    void awaitPending() throws IORuntimeException {
+        Future<?> pending = this.pending;
+        if (pending == null)
+            return;
+        this.pending = null;
+        try {
+            pending.get();
+        } catch (ExecutionException e) {
+            throw new IORuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IORuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.ClassLocal;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * A fixed size binary layout for a class with only primitive fields, so records can be read and
+ * written in place at known offsets.
+ * <p></p>
+ * Fields are laid out in the same order and with the same sizes as BytesMarshaller writes them,
+ * except a char is 2 bytes, so for classes without a char field a record written with
+ * writeMarshallable() can be accessed in place and vice versa.
+ * <p></p>
+ * A field handle, e.g. from longField("id"), reads and writes one field of any record directly in a
+ * BytesStore, in the way BinaryLongReference does for one long.  The handles are typed, so records
+ * can be scanned in place without creating or boxing anything.
+ * <pre>
+ * LongField id = layout.longField("id");
+ * for (long offset = 0; offset &lt; end; offset += layout.size())
+ *     sum += id.get(bytes, offset);
+ * </pre>
+ */
+public class FixedLayout<T> {
+    static final ClassLocal<FixedLayout> FIXED_LAYOUT_CL = ClassLocal.withInitial(FixedLayout::new);
+
+    @NotNull
+    private final Class<T> tClass;
+    @NotNull
+    private final Map<String, Slot> slots = new LinkedHashMap<>();
+    @NotNull
+    private final Slot[] slotArray;
+    private final int size;
+
+    FixedLayout(@NotNull Class<T> tClass) throws IllegalArgumentException {
+        this.tClass = tClass;
+        Map<String, Field> fields = new LinkedHashMap<>();
+        BytesMarshaller.getAllField(tClass, fields);
+        int offset = 0;
+        for (Field field : fields.values()) {
+            Slot slot = new Slot(field, offset);
+            slots.put(field.getName(), slot);
+            offset += slot.size;
+        }
+        slotArray = slots.values().toArray(new Slot[slots.size()]);
+        size = offset;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the class has a field which isn't a primitive.
+     */
+    @NotNull
+    public static <T> FixedLayout<T> of(@NotNull Class<T> tClass) throws IllegalArgumentException {
+        return FIXED_LAYOUT_CL.get(tClass);
+    }
+
+    @NotNull
+    public Class<T> type() {
+        return tClass;
+    }
+
+    /**
+     * @return the size of a record in bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the offset of a field within a record.
+     * @throws IllegalArgumentException if there is no such field.
+     */
+    public int offsetOf(@NotNull String name) throws IllegalArgumentException {
+        return slot(name).offset;
+    }
+
+    @NotNull
+    private Slot slot(@NotNull String name) throws IllegalArgumentException {
+        Slot slot = slots.get(name);
+        if (slot == null)
+            throw new IllegalArgumentException("No field " + name + " in " + tClass.getName());
+        return slot;
+    }
+
+    /**
+     * Write all the fields of t as a record at offset.
+     */
+    public void writeTo(@NotNull T t, @NotNull BytesStore bytes, long offset) {
+        for (Slot slot : slotArray)
+            slot.copyToBytes(t, bytes, offset);
+    }
+
+    /**
+     * Read all the fields of t from the record at offset.
+     */
+    public void readFrom(@NotNull BytesStore bytes, long offset, @NotNull T t) {
+        for (Slot slot : slotArray)
+            slot.copyFromBytes(bytes, offset, t);
+    }
+
+    @NotNull
+    public BooleanField booleanField(@NotNull String name) throws IllegalArgumentException {
+        return new BooleanField(slot(name, boolean.class).offset);
+    }
+
+    @NotNull
+    public ByteField byteField(@NotNull String name) throws IllegalArgumentException {
+        return new ByteField(slot(name, byte.class).offset);
+    }
+
+    @NotNull
+    public ShortField shortField(@NotNull String name) throws IllegalArgumentException {
+        return new ShortField(slot(name, short.class).offset);
+    }
+
+    @NotNull
+    public CharField charField(@NotNull String name) throws IllegalArgumentException {
+        return new CharField(slot(name, char.class).offset);
+    }
+
+    @NotNull
+    public IntField intField(@NotNull String name) throws IllegalArgumentException {
+        return new IntField(slot(name, int.class).offset);
+    }
+
+    @NotNull
+    public FloatField floatField(@NotNull String name) throws IllegalArgumentException {
+        return new FloatField(slot(name, float.class).offset);
+    }
+
+    @NotNull
+    public LongField longField(@NotNull String name) throws IllegalArgumentException {
+        return new LongField(slot(name, long.class).offset);
+    }
+
+    @NotNull
+    public DoubleField doubleField(@NotNull String name) throws IllegalArgumentException {
+        return new DoubleField(slot(name, double.class).offset);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such field or it is not of this type.
+     */
+    @NotNull
+    private Slot slot(@NotNull String name, @NotNull Class type) throws IllegalArgumentException {
+        Slot slot = slot(name);
+        if (slot.type != type)
+            throw new IllegalArgumentException("Field " + slot.field + " is not a " + type);
+        return slot;
+    }
+
+    /**
+     * @return the fields of the record at offset as text, for debugging.
+     */
+    @NotNull
+    public String toString(@NotNull BytesStore bytes, long offset) {
+        StringBuilder sb = new StringBuilder(tClass.getSimpleName()).append('{');
+        String sep = "";
+        for (Slot slot : slotArray) {
+            sb.append(sep).append(slot.field.getName()).append('=').append(slot.get(bytes, offset));
+            sep = ", ";
+        }
+        return sb.append('}').toString();
+    }
+
+    static final class Slot {
+        final Field field;
+        final Class type;
+        final int offset;
+        final int size;
+        final long fieldOffset;
+
+        Slot(@NotNull Field field, int offset) throws IllegalArgumentException {
+            this.field = field;
+            this.type = field.getType();
+            this.offset = offset;
+            this.fieldOffset = UNSAFE.objectFieldOffset(field);
+            if (type == boolean.class || type == byte.class)
+                size = 1;
+            else if (type == short.class || type == char.class)
+                size = 2;
+            else if (type == int.class || type == float.class)
+                size = 4;
+            else if (type == long.class || type == double.class)
+                size = 8;
+            else
+                throw new IllegalArgumentException("Field " + field + " is not a primitive, so can't have a fixed layout");
+        }
+
+        void copyToBytes(Object o, @NotNull BytesStore bytes, long offset) {
+            long position = offset + this.offset;
+            switch (size) {
+                case 1:
+                    bytes.writeByte(position, type == boolean.class
+                            ? (UNSAFE.getBoolean(o, fieldOffset) ? (byte) 'Y' : 0)
+                            : UNSAFE.getByte(o, fieldOffset));
+                    break;
+                case 2:
+                    bytes.writeShort(position, UNSAFE.getShort(o, fieldOffset));
+                    break;
+                case 4:
+                    bytes.writeInt(position, UNSAFE.getInt(o, fieldOffset));
+                    break;
+                default:
+                    bytes.writeLong(position, UNSAFE.getLong(o, fieldOffset));
+                    break;
+            }
+        }
+
+        void copyFromBytes(@NotNull BytesStore bytes, long offset, Object o) {
+            long position = offset + this.offset;
+            switch (size) {
+                case 1:
+                    if (type == boolean.class)
+                        UNSAFE.putBoolean(o, fieldOffset, bytes.readByte(position) != 0);
+                    else
+                        UNSAFE.putByte(o, fieldOffset, bytes.readByte(position));
+                    break;
+                case 2:
+                    UNSAFE.putShort(o, fieldOffset, bytes.readShort(position));
+                    break;
+                case 4:
+                    UNSAFE.putInt(o, fieldOffset, bytes.readInt(position));
+                    break;
+                default:
+                    UNSAFE.putLong(o, fieldOffset, bytes.readLong(position));
+                    break;
+            }
+        }
+
+        Object get(@NotNull BytesStore bytes, long offset) {
+            long position = offset + this.offset;
+            if (type == long.class)
+                return bytes.readLong(position);
+            if (type == double.class)
+                return bytes.readDouble(position);
+            if (type == int.class)
+                return bytes.readInt(position);
+            if (type == float.class)
+                return bytes.readFloat(position);
+            if (type == short.class)
+                return bytes.readShort(position);
+            if (type == char.class)
+                return (char) bytes.readShort(position);
+            if (type == byte.class)
+                return bytes.readByte(position);
+            return bytes.readByte(position) != 0;
+        }
+    }
+
+    public static final class BooleanField {
+        private final int offset;
+
+        BooleanField(int offset) {
+            this.offset = offset;
+        }
+
+        public boolean get(@NotNull BytesStore bytes, long record) {
+            return bytes.readByte(record + offset) != 0;
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, boolean value) {
+            bytes.writeByte(record + offset, value ? (byte) 'Y' : 0);
+        }
+    }
+
+    public static final class ByteField {
+        private final int offset;
+
+        ByteField(int offset) {
+            this.offset = offset;
+        }
+
+        public byte get(@NotNull BytesStore bytes, long record) {
+            return bytes.readByte(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, byte value) {
+            bytes.writeByte(record + offset, value);
+        }
+
+        public byte getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileByte(record + offset);
+        }
+    }
+
+    public static final class ShortField {
+        private final int offset;
+
+        ShortField(int offset) {
+            this.offset = offset;
+        }
+
+        public short get(@NotNull BytesStore bytes, long record) {
+            return bytes.readShort(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, short value) {
+            bytes.writeShort(record + offset, value);
+        }
+
+        public short getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileShort(record + offset);
+        }
+    }
+
+    public static final class CharField {
+        private final int offset;
+
+        CharField(int offset) {
+            this.offset = offset;
+        }
+
+        public char get(@NotNull BytesStore bytes, long record) {
+            return (char) bytes.readShort(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, char value) {
+            bytes.writeShort(record + offset, (short) value);
+        }
+    }
+
+    public static final class IntField {
+        private final int offset;
+
+        IntField(int offset) {
+            this.offset = offset;
+        }
+
+        public int get(@NotNull BytesStore bytes, long record) {
+            return bytes.readInt(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, int value) {
+            bytes.writeInt(record + offset, value);
+        }
+
+        public int getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileInt(record + offset);
+        }
+
+        public void setOrdered(@NotNull BytesStore bytes, long record, int value) {
+            bytes.writeOrderedInt(record + offset, value);
+        }
+
+        public boolean compareAndSwap(@NotNull BytesStore bytes, long record, int expected, int value) {
+            return bytes.compareAndSwapInt(record + offset, expected, value);
+        }
+    }
+
+    public static final class FloatField {
+        private final int offset;
+
+        FloatField(int offset) {
+            this.offset = offset;
+        }
+
+        public float get(@NotNull BytesStore bytes, long record) {
+            return bytes.readFloat(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, float value) {
+            bytes.writeFloat(record + offset, value);
+        }
+
+        public float getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileFloat(record + offset);
+        }
+
+        public void setOrdered(@NotNull BytesStore bytes, long record, float value) {
+            bytes.writeOrderedFloat(record + offset, value);
+        }
+
+        public boolean compareAndSwap(@NotNull BytesStore bytes, long record, float expected, float value) {
+            return bytes.compareAndSwapFloat(record + offset, expected, value);
+        }
+    }
+
+    public static final class LongField {
+        private final int offset;
+
+        LongField(int offset) {
+            this.offset = offset;
+        }
+
+        public long get(@NotNull BytesStore bytes, long record) {
+            return bytes.readLong(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, long value) {
+            bytes.writeLong(record + offset, value);
+        }
+
+        public long getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileLong(record + offset);
+        }
+
+        public void setOrdered(@NotNull BytesStore bytes, long record, long value) {
+            bytes.writeOrderedLong(record + offset, value);
+        }
+
+        public boolean compareAndSwap(@NotNull BytesStore bytes, long record, long expected, long value) {
+            return bytes.compareAndSwapLong(record + offset, expected, value);
+        }
+    }
+
+    public static final class DoubleField {
+        private final int offset;
+
+        DoubleField(int offset) {
+            this.offset = offset;
+        }
+
+        public double get(@NotNull BytesStore bytes, long record) {
+            return bytes.readDouble(record + offset);
+        }
+
+        public void set(@NotNull BytesStore bytes, long record, double value) {
+            bytes.writeDouble(record + offset, value);
+        }
+
+        public double getVolatile(@NotNull BytesStore bytes, long record) {
+            return bytes.readVolatileDouble(record + offset);
+        }
+
+        public void setOrdered(@NotNull BytesStore bytes, long record, double value) {
+            bytes.writeOrderedDouble(record + offset, value);
+        }
+
+        public boolean compareAndSwap(@NotNull BytesStore bytes, long record, double expected, double value) {
+            return bytes.compareAndSwapDouble(record + offset, expected, value);
+        }
+    }
+}
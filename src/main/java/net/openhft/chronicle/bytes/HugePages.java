@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allocates memory backed by huge pages to reduce TLB misses for large stores.
+ * <p></p>
+ * Explicit huge pages are mapped from a file on a hugetlbfs mount, by default /dev/hugepages, or
+ * the directory in the system property chronicle.bytes.hugetlbfs.  The file is deleted once mapped.
+ * If that isn't available, the memory is allocated aligned to the huge page size so transparent
+ * huge pages can be used when they are enabled for all memory.
+ */
+final class HugePages {
+    static final String HUGETLBFS = System.getProperty("chronicle.bytes.hugetlbfs", "/dev/hugepages");
+    static final long HUGE_PAGE_SIZE = hugePageSize();
+    private static final Logger LOG = LoggerFactory.getLogger(HugePages.class);
+
+    private HugePages() {
+    }
+
+    private static long hugePageSize() {
+        File meminfo = new File("/proc/meminfo");
+        if (meminfo.exists()) {
+            try (BufferedReader br = new BufferedReader(new FileReader(meminfo))) {
+                for (String line; (line = br.readLine()) != null; ) {
+                    if (line.startsWith("Hugepagesize:"))
+                        return Long.parseLong(line.replaceAll("\\D", "")) << 10;
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOG.debug("Unable to read the huge page size", e);
+            }
+        }
+        return 2 << 20;
+    }
+
+    @NotNull
+    static NativeBytesStore<Void> nativeStoreWithFixedCapacity(long capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        long size = (capacity + HUGE_PAGE_SIZE - 1) / HUGE_PAGE_SIZE * HUGE_PAGE_SIZE;
+        NativeBytesStore<Void> store = mapHugetlbfs(capacity, size);
+        return store != null ? store : allocateAligned(capacity, size);
+    }
+
+    @Nullable
+    private static NativeBytesStore<Void> mapHugetlbfs(long capacity, long size) {
+        File dir = new File(HUGETLBFS);
+        if (!dir.isDirectory() || !dir.canWrite())
+            return null;
+        File file = null;
+        try {
+            file = File.createTempFile("chronicle-", ".huge", dir);
+            long address;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(size);
+                // huge pages are reserved when mapped, so this fails if there are not enough.
+                address = OS.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            return new NativeBytesStore<>(address, capacity, new Unmapper(address, size), false);
+
+        } catch (IOException e) {
+            LOG.debug("Unable to map huge pages in " + dir + ", falling back to aligned memory", e);
+            return null;
+
+        } finally {
+            if (file != null && !file.delete())
+                LOG.warn("Unable to delete " + file);
+        }
+    }
+
+    @NotNull
+    private static NativeBytesStore<Void> allocateAligned(long capacity, long size) {
+        Memory memory = OS.memory();
+        long rawSize = size + HUGE_PAGE_SIZE;
+        long rawAddress = memory.allocate(rawSize);
+        long address = (rawAddress + HUGE_PAGE_SIZE - 1) / HUGE_PAGE_SIZE * HUGE_PAGE_SIZE;
+        memory.setMemory(address, capacity, (byte) 0);
+        memory.storeFence();
+        return new NativeBytesStore<>(address, capacity, new NativeBytesStore.Deallocator(rawAddress, rawSize), false);
+    }
+
+    static class Unmapper implements Runnable {
+        private volatile long address;
+        private final long size;
+
+        Unmapper(long address, long size) {
+            this.address = address;
+            this.size = size;
+        }
+
+        @Override
+        public void run() {
+            if (address == 0)
+                return;
+            long addressToUnmap = address;
+            address = 0;
+            try {
+                OS.unmap(addressToUnmap, size);
+            } catch (IOException e) {
+                LOG.error("Unable to unmap huge pages", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+/**
+ * How a range of a MappedFile is expected to be accessed, the equivalent of madvise(2) advice.
+ * <p></p>
+ * Hints are best effort, see MappedFile.advise().  Without native support pre-fetching hints
+ * touch the pages in the background and DONT_NEED unmaps chunks.
+ */
+public enum MappedAccessHint {
+    /**
+     * No special treatment, this has no effect.
+     */
+    NORMAL(false),
+    /**
+     * The range will be read in order, e.g. by a replayer.  This is treated as WILL_NEED, so the
+     * whole range is faulted in, not just ahead of the reader.
+     */
+    SEQUENTIAL(true),
+    /**
+     * The range will be accessed in no particular order.  Read ahead can't be disabled without
+     * native support, so this has no effect and MappedFile.advise() returns false.
+     */
+    RANDOM(false),
+    /**
+     * The range will be needed soon, so fault it in now.
+     */
+    WILL_NEED(true),
+    /**
+     * The range won't be needed soon, so unmap the chunks entirely inside it which are not in use.
+     */
+    DONT_NEED(false);
+
+    private final boolean preFetch;
+
+    MappedAccessHint(boolean preFetch) {
+        this.preFetch = preFetch;
+    }
+
+    /**
+     * @return whether this hint is honoured by faulting in the pages in the background.
+     */
+    public boolean preFetch() {
+        return preFetch;
+    }
+}
@@ -36,11 +36,15 @@ import static net.openhft.chronicle.core.util.StringUtils.extractChars;
 public class MappedBytes extends AbstractBytes<Void> {
     public static boolean CHECKING = false;
     private final MappedFile mappedFile;
+    private final boolean readOnly;
+    // the write position after which the next chunk is mapped in the background.
+    private long preMapPosition = Long.MAX_VALUE;
 
     // assume the mapped file is reserved already.
     protected MappedBytes(MappedFile mappedFile) throws IllegalStateException {
         super(NoBytesStore.noBytesStore(), NoBytesStore.noBytesStore().writePosition(), NoBytesStore.noBytesStore().writeLimit());
         this.mappedFile = mappedFile;
+        this.readOnly = mappedFile.isReadOnly();
         clear();
     }
 
@@ -65,6 +69,28 @@ public class MappedBytes extends AbstractBytes<Void> {
         return CHECKING ? new CheckingMappedBytes(rw) : new MappedBytes(rw);
     }
 
+    /**
+     * Map an existing file read only, with the readLimit() set to the size of the file.  Reading
+     * past the end of the file throws a BufferUnderflowException and any write throws an
+     * IllegalStateException.
+     */
+    @NotNull
+    public static MappedBytes readOnly(@NotNull File file, long chunkSize) throws FileNotFoundException, IllegalStateException {
+        return readOnly(file, chunkSize, OS.pageSize());
+    }
+
+    @NotNull
+    public static MappedBytes readOnly(@NotNull File file, long chunkSize, long overlapSize) throws FileNotFoundException, IllegalStateException {
+        MappedFile ro = MappedFile.readOnly(file, chunkSize, overlapSize);
+        MappedBytes bytes = mappedBytes(ro);
+        bytes.readLimit(ro.actualSize());
+        return bytes;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     public void setNewChunkListener(NewChunkListener listener) {
         mappedFile.setNewChunkListener(listener);
     }
@@ -73,6 +99,14 @@ public class MappedBytes extends AbstractBytes<Void> {
         return mappedFile;
     }
 
+    /**
+     * Write the modified pages from fromPosition to toPosition to disk and wait for it to complete.
+     * See {@link MappedSyncer} to do this in the background.
+     */
+    public void sync(long fromPosition, long toPosition) throws IOException {
+        mappedFile.sync(fromPosition, toPosition);
+    }
+
     public MappedBytes withSizes(long chunkSize, long overlapSize) {
         MappedFile mappedFile2 = this.mappedFile.withSizes(chunkSize, overlapSize);
         if (mappedFile2 == this.mappedFile)
@@ -101,7 +135,8 @@ public class MappedBytes extends AbstractBytes<Void> {
 
     @Override
     protected void readCheckOffset(long offset, long adding, boolean given) throws BufferUnderflowException, IORuntimeException {
-        if (!bytesStore.inside(offset)) {
+        // the last chunk of a read only file is only mapped up to the end of the file.
+        if (!bytesStore.inside(offset) || (readOnly && offset + adding > bytesStore.capacity())) {
             BytesStore oldBS = bytesStore;
             try {
                 bytesStore = (BytesStore) mappedFile.acquireByteStore(offset);
@@ -111,12 +146,16 @@ public class MappedBytes extends AbstractBytes<Void> {
             } catch (IllegalArgumentException e) {
                 throw new BufferUnderflowException();
             }
+            if (readOnly && offset + adding > bytesStore.capacity())
+                throw new BufferUnderflowException();
         }
         super.readCheckOffset(offset, adding, given);
     }
 
     @Override
     protected void writeCheckOffset(long offset, long adding) throws BufferOverflowException, IORuntimeException {
+        if (readOnly)
+            throw new IllegalStateException("Read only " + mappedFile.file());
         if (offset < 0 || offset > capacity() - adding)
             throw new IllegalArgumentException("Offset out of bound " + offset);
         if (!bytesStore.inside(offset)) {
@@ -129,6 +168,11 @@ public class MappedBytes extends AbstractBytes<Void> {
             } catch (IllegalArgumentException e) {
                 throw new BufferOverflowException();
             }
+            preMapPosition = mappedFile.preMapPosition(bytesStore.start());
+        }
+        if (offset >= preMapPosition) {
+            preMapPosition = Long.MAX_VALUE;
+            mappedFile.preMap(offset);
         }
     }
 
@@ -166,6 +210,8 @@ public class MappedBytes extends AbstractBytes<Void> {
 
     public void rawCopy(@NotNull BytesStore bytes, long offset, long length)
             throws BufferOverflowException, BufferUnderflowException {
+        if (readOnly)
+            throw new IllegalStateException("Read only " + mappedFile.file());
         long len = Math.min(writeRemaining(), Math.min(bytes.readRemaining(), length));
         if (len > 0) {
             OS.memory().copyMemory(bytes.address(offset), address(writePosition()), len);
@@ -26,13 +26,27 @@ import org.jetbrains.annotations.NotNull;
 public class MappedBytesStore extends NativeBytesStore<Void> {
     private final long start;
     private final long safeLimit;
+    // when this was last acquired from the MappedFile, approximate as it is not thread safe.
+    long lastUsed;
 
     protected MappedBytesStore(ReferenceCounted owner, long start, long address, long capacity, long safeCapacity) throws IllegalStateException {
-        super(address, start + capacity, new OS.Unmapper(address, capacity, owner), false);
+        super(address, start + capacity, unmapper(owner, address, capacity), false);
         this.start = start;
         this.safeLimit = start + safeCapacity;
     }
 
+    @NotNull
+    private static Runnable unmapper(ReferenceCounted owner, long address, long capacity) {
+        OS.Unmapper unmapper = new OS.Unmapper(address, capacity, owner);
+        if (!(owner instanceof MappedFile))
+            return unmapper;
+        MappedFile mappedFile = (MappedFile) owner;
+        return () -> {
+            mappedFile.onUnmap(capacity);
+            unmapper.run();
+        };
+    }
+
     @NotNull
     @Override
     public VanillaBytes<Void> bytesForWrite() throws IllegalStateException {
@@ -26,15 +26,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A memory mapped files which can be randomly accessed in chunks.
@@ -45,26 +55,67 @@ public class MappedFile implements ReferenceCounted {
     // A single JVM cannot lock a file more than once.
     private static final Object GLOBAL_FILE_LOCK = new Object();
     private static final Logger LOG = LoggerFactory.getLogger(MappedFile.class);
+    // msync of a range of memory, a direct ByteBuffer is a MappedByteBuffer to call it on.
+    @Nullable
+    private static final Method FORCE0;
+    private static final ByteBuffer FORCE0_BB = ByteBuffer.allocateDirect(0);
+
+    static {
+        Method force0 = null;
+        try {
+            force0 = MappedByteBuffer.class.getDeclaredMethod("force0", FileDescriptor.class, long.class, long.class);
+            force0.setAccessible(true);
+        } catch (Exception e) {
+            LOG.debug("Unable to sync a range of a file, the whole file will be synced", e);
+        }
+        FORCE0 = force0;
+    }
     @NotNull
     private final RandomAccessFile raf;
     private final FileChannel fileChannel;
     private final long chunkSize;
     private final long overlapSize;
-    private final List<WeakReference<MappedBytesStore>> stores = new ArrayList<>();
+    private final Object lock = new Object();
+    // indexed by chunk, read without locking but only replaced or modified holding the lock.
+    private volatile AtomicReferenceArray<WeakReference<MappedBytesStore>> stores = new AtomicReferenceArray<>(8);
+    // the number of chunks which have been requested, guarded by the lock.
+    private int storesUsed = 0;
     private final ReferenceCounter refCount = ReferenceCounter.onReleased(this::performRelease);
     private final AtomicBoolean closed = new AtomicBoolean();
     private final long capacity;
+    private final boolean readOnly;
     @NotNull
     private final File file;
     private NewChunkListener newChunkListener = null;
+    private volatile double preMapFraction = 0;
+    private volatile boolean preTouch = false;
+    @NotNull
+    private volatile MappedFileGrowthPolicy growthPolicy = MappedFileGrowthPolicy.sparse();
+    private volatile long mappedBudget = Long.MAX_VALUE;
+    private final AtomicLong mappedBytes = new AtomicLong();
+    private final AtomicLong mapCount = new AtomicLong();
+    private final AtomicLong unmapCount = new AtomicLong();
+    // the highest chunk handed to the pre-mapper so far.
+    private final AtomicInteger preMapChunk = new AtomicInteger(-1);
+    // pre-maps and touches pages in the background, guarded by the lock.
+    @Nullable
+    private ExecutorService helper = null;
+    // keeps the last pre-mapped chunk reserved until the next one is mapped, only accessed by the pre-mapper.
+    @Nullable
+    private MappedBytesStore preMapped = null;
 
     protected MappedFile(@NotNull File file, @NotNull RandomAccessFile raf, long chunkSize, long overlapSize, long capacity) {
+        this(file, raf, chunkSize, overlapSize, capacity, false);
+    }
+
+    protected MappedFile(@NotNull File file, @NotNull RandomAccessFile raf, long chunkSize, long overlapSize, long capacity, boolean readOnly) {
         this.file = file;
         this.raf = raf;
         this.fileChannel = raf.getChannel();
         this.chunkSize = OS.mapAlign(chunkSize);
         this.overlapSize = OS.mapAlign(overlapSize);
         this.capacity = capacity;
+        this.readOnly = readOnly;
     }
 
     public static MappedFile of(@NotNull File file, long chunkSize, long overlapSize) throws FileNotFoundException {
@@ -72,6 +123,19 @@ public class MappedFile implements ReferenceCounted {
         return new MappedFile(file, raf, chunkSize, overlapSize, DEFAULT_CAPACITY);
     }
 
+    /**
+     * Open an existing file to be mapped read only.  The file is never extended or locked, and
+     * only needs read permission.  The last chunk is only mapped up to the end of the file, and is
+     * mapped again if the file has grown when a position past the end is acquired.
+     * <p></p>
+     * Writing to a read only mapping will crash the JVM, so only read from the BytesStores.
+     */
+    @NotNull
+    public static MappedFile readOnly(@NotNull File file, long chunkSize, long overlapSize) throws FileNotFoundException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        return new MappedFile(file, raf, chunkSize, overlapSize, DEFAULT_CAPACITY, true);
+    }
+
     @NotNull
     public static MappedFile mappedFile(@NotNull File file, long chunkSize) throws FileNotFoundException {
         return mappedFile(file, chunkSize, OS.pageSize());
@@ -98,7 +162,7 @@ public class MappedFile implements ReferenceCounted {
         if (chunkSize == this.chunkSize && overlapSize == this.overlapSize)
             return this;
         try {
-            return new MappedFile(file, raf, chunkSize, overlapSize, capacity);
+            return new MappedFile(file, raf, chunkSize, overlapSize, capacity, readOnly);
         } finally {
             release();
         }
@@ -108,6 +172,10 @@ public class MappedFile implements ReferenceCounted {
         return file;
     }
 
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     @Nullable
     public MappedBytesStore acquireByteStore(long position) throws IOException, IllegalArgumentException, IllegalStateException {
         return acquireByteStore(position, MappedBytesStore::new);
@@ -115,32 +183,60 @@ public class MappedFile implements ReferenceCounted {
 
     @Nullable
     public <T extends MappedBytesStore> T acquireByteStore(long position, MappedBytesStoreFactory<T> mappedBytesStoreFactory) throws IOException, IllegalArgumentException, IllegalStateException {
+        return acquireByteStore(position, mappedBytesStoreFactory, preTouch);
+    }
+
+    @Nullable
+    private <T extends MappedBytesStore> T acquireByteStore(long position, MappedBytesStoreFactory<T> mappedBytesStoreFactory, boolean preTouch) throws IOException, IllegalArgumentException, IllegalStateException {
         if (closed.get())
             throw new IOException("Closed");
         if (position < 0)
             throw new IOException("Attempt to access a negative position: " + position);
         int chunk = (int) (position / chunkSize);
-        synchronized (stores) {
-            while (stores.size() <= chunk) {
-                stores.add(null);
+        T mbs = tryAcquire(stores, chunk);
+        if (mbs != null && !(readOnly && isStale(mbs)))
+            return mbs;
+        if (mbs != null)
+            mbs.release();
+
+        synchronized (lock) {
+            AtomicReferenceArray<WeakReference<MappedBytesStore>> stores = this.stores;
+            if (stores.length() <= chunk) {
+                AtomicReferenceArray<WeakReference<MappedBytesStore>> stores2 =
+                        new AtomicReferenceArray<>(Math.max(chunk + 1, stores.length() * 2));
+                for (int i = 0; i < storesUsed; i++)
+                    stores2.lazySet(i, stores.get(i));
+                this.stores = stores = stores2;
             }
-            WeakReference<MappedBytesStore> mbsRef = stores.get(chunk);
-            if (mbsRef != null) {
-                T mbs = (T) mbsRef.get();
-                if (mbs != null && mbs.tryReserve()) {
+            if (storesUsed <= chunk)
+                storesUsed = chunk + 1;
+            // another thread might have mapped it while we waited for the lock.
+            mbs = tryAcquire(stores, chunk);
+            if (mbs != null) {
+                if (!(readOnly && isStale(mbs)))
                     return mbs;
-                }
+                // release this reservation and the one held by this MappedFile as it is replaced.
+                mbs.release();
+                mbs.release();
             }
+
             long minSize = (chunk + 1L) * chunkSize + overlapSize;
             long size = fileChannel.size();
-            if (size < minSize) {
+            long mappedSize = chunkSize + overlapSize;
+            if (readOnly) {
+                // never extend the file, map as much of the chunk as there is.
+                if (size <= chunk * chunkSize)
+                    throw new IllegalArgumentException("Position " + position + " is past the end of " + file + ", size: " + size);
+                mappedSize = Math.min(mappedSize, size - chunk * chunkSize);
+
+            } else if (size < minSize) {
                 // handle a possible race condition between processes.
                 try {
                     synchronized (GLOBAL_FILE_LOCK) {
                         try (FileLock lock = fileChannel.lock()) {
                             size = fileChannel.size();
                             if (size < minSize) {
-                                raf.setLength(minSize);
+                                grow(size, minSize);
                             }
                         }
                     }
@@ -149,18 +245,110 @@ public class MappedFile implements ReferenceCounted {
                 }
             }
             long start = System.nanoTime();
-            long mappedSize = chunkSize + overlapSize;
-            long address = OS.map(fileChannel, FileChannel.MapMode.READ_WRITE, chunk * chunkSize, mappedSize);
-            T mbs2 = mappedBytesStoreFactory.create(this, chunk * chunkSize, address, mappedSize, chunkSize);
+            FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+            long address = OS.map(fileChannel, mode, chunk * chunkSize, mappedSize);
+            T mbs2 = mappedBytesStoreFactory.create(this, chunk * chunkSize, address, mappedSize, Math.min(chunkSize, mappedSize));
             stores.set(chunk, new WeakReference<>(mbs2));
             mbs2.reserve();
+            mbs2.lastUsed = System.nanoTime();
+            mapCount.incrementAndGet();
+            mappedBytes.addAndGet(mappedSize);
+            evictOverBudget(chunk);
             if (newChunkListener != null)
                 newChunkListener.onNewChunk(file.getPath(), chunk, (System.nanoTime() - start) / 1000);
 //            new Throwable("chunk "+chunk).printStackTrace();
+            if (preTouch)
+                inBackground(mbs2, mbs2.start(), mbs2.capacity(), true);
             return mbs2;
         }
     }
 
+    /**
+     * Extend the file as the growth policy decides, called holding the file lock.
+     */
+    private void grow(long size, long minSize) throws IOException {
+        MappedFileGrowthPolicy growthPolicy = this.growthPolicy;
+        long newSize = Math.min(growthPolicy.newSize(size, minSize, chunkSize), capacity + overlapSize);
+        if (newSize < minSize)
+            newSize = minSize;
+        if (!growthPolicy.preallocate()) {
+            raf.setLength(newSize);
+            return;
+        }
+        ByteBuffer zeros = ByteBuffer.allocate(64 << 10);
+        for (long position = size; position < newSize; ) {
+            zeros.clear();
+            if (newSize - position < zeros.capacity())
+                zeros.limit((int) (newSize - position));
+            position += fileChannel.write(zeros, position);
+        }
+    }
+
+    /**
+     * @return true if a read only chunk was mapped only up to the end of the file, and the file has
+     * grown since.
+     */
+    private boolean isStale(@NotNull MappedBytesStore mbs) throws IOException {
+        return mbs.capacity() < mbs.start() + chunkSize + overlapSize && fileChannel.size() > mbs.capacity();
+    }
+
+    /**
+     * The lock free path to find a chunk which is already mapped.
+     *
+     * @return the reserved store, or null if it needs to be mapped.
+     */
+    @Nullable
+    private static <T extends MappedBytesStore> T tryAcquire(@NotNull AtomicReferenceArray<WeakReference<MappedBytesStore>> stores, int chunk) {
+        if (chunk >= stores.length())
+            return null;
+        WeakReference<MappedBytesStore> mbsRef = stores.get(chunk);
+        if (mbsRef == null)
+            return null;
+        T mbs = (T) mbsRef.get();
+        if (mbs == null || !mbs.tryReserve())
+            return null;
+        mbs.lastUsed = System.nanoTime();
+        return mbs;
+    }
+
+    /**
+     * Unmap the least recently used chunks which are only reserved by this MappedFile until the
+     * mapped bytes are within the budget, called holding the lock.
+     *
+     * @param except a chunk not to unmap
+     */
+    private void evictOverBudget(int except) {
+        long evicted = 0;
+        while (mappedBytes.get() - evicted > mappedBudget) {
+            int lru = -1;
+            MappedBytesStore lruStore = null;
+            for (int i = 0; i < storesUsed; i++) {
+                MappedBytesStore mbs = get(stores.get(i));
+                if (i == except || mbs == null || mbs.refCount() != 1)
+                    continue;
+                if (lruStore == null || mbs.lastUsed < lruStore.lastUsed) {
+                    lru = i;
+                    lruStore = mbs;
+                }
+            }
+            if (lruStore == null)
+                return;
+            if (!unmap(lru, lruStore))
+                evicted += lruStore.capacity() - lruStore.start();
+        }
+    }
+
+    /**
+     * Release the reservation this MappedFile holds on a chunk, called holding the lock.
+     *
+     * @return false if a concurrent tryAcquire reserved it, in which case it is unmapped when released.
+     */
+    private boolean unmap(int chunk, @NotNull MappedBytesStore mbs) {
+        stores.set(chunk, null);
+        mbs.release();
+        return mbs.refCount() <= 0;
+    }
+
     /**
      * Convenience method so you don't need to release the BytesStore
      */
@@ -213,9 +401,11 @@ public class MappedFile implements ReferenceCounted {
     public void close() {
         if (!closed.compareAndSet(false, true))
             return;
+        stopHelper();
         try {
-            synchronized (stores) {
-                ReferenceCounted.releaseAll((List) stores);
+            synchronized (lock) {
+                for (int i = 0; i < storesUsed; i++)
+                    ReferenceCounted.release(get(stores.get(i)));
             }
             release();
         } catch (IllegalStateException e) {
@@ -223,25 +413,29 @@ public class MappedFile implements ReferenceCounted {
         }
     }
 
+    @Nullable
+    private static MappedBytesStore get(@Nullable WeakReference<MappedBytesStore> storeRef) {
+        return storeRef == null ? null : storeRef.get();
+    }
+
     private void performRelease() {
-        for (int i = 0; i < stores.size(); i++) {
-            WeakReference<MappedBytesStore> storeRef = stores.get(i);
-            if (storeRef == null)
-                continue;
-            MappedBytesStore mbs = storeRef.get();
-            if (mbs != null) {
-                long count = mbs.refCount();
-                if (count > 0) {
-                    try {
-                        mbs.release();
-                    } catch (IllegalStateException e) {
-                        LOG.error("", e);
+        synchronized (lock) {
+            for (int i = 0; i < storesUsed; i++) {
+                MappedBytesStore mbs = get(stores.get(i));
+                if (mbs != null) {
+                    long count = mbs.refCount();
+                    if (count > 0) {
+                        try {
+                            mbs.release();
+                        } catch (IllegalStateException e) {
+                            LOG.error("", e);
+                        }
+                        if (count > 1)
+                            continue;
                     }
-                    if (count > 1)
-                        continue;
                 }
+                stores.set(i, null);
             }
-            stores.set(i, null);
         }
         try {
             raf.close();
@@ -254,14 +448,11 @@ public class MappedFile implements ReferenceCounted {
     public String referenceCounts() {
         StringBuilder sb = new StringBuilder();
         sb.append("refCount: ").append(refCount());
-        for (WeakReference<MappedBytesStore> store : stores) {
-            long count = 0;
-            if (store != null) {
-                MappedBytesStore mbs = store.get();
-                if (mbs != null)
-                    count = mbs.refCount();
+        synchronized (lock) {
+            for (int i = 0; i < storesUsed; i++) {
+                MappedBytesStore mbs = get(stores.get(i));
+                sb.append(", ").append(mbs == null ? 0 : mbs.refCount());
             }
-            sb.append(", ").append(count);
         }
         return sb.toString();
     }
@@ -286,6 +477,334 @@ public class MappedFile implements ReferenceCounted {
         this.newChunkListener = listener;
     }
 
+    @NotNull
+    public MappedFileGrowthPolicy getGrowthPolicy() {
+        return growthPolicy;
+    }
+
+    /**
+     * @param growthPolicy how much to extend the file by when a chunk beyond the end is needed.
+     */
+    public void setGrowthPolicy(@NotNull MappedFileGrowthPolicy growthPolicy) {
+        this.growthPolicy = growthPolicy;
+    }
+
+    public long getMappedBudget() {
+        return mappedBudget;
+    }
+
+    /**
+     * Limit how much of this file is mapped at once.  When a new chunk takes the mapped bytes over
+     * the budget, the least recently acquired chunks which are not reserved by anything else are
+     * unmapped.  Chunks in use are never unmapped, so the budget can be exceeded.
+     *
+     * @param maxMappedBytes the budget in bytes, or Long.MAX_VALUE for no limit.
+     */
+    public void setMappedBudget(long maxMappedBytes) {
+        if (maxMappedBytes < 0)
+            throw new IllegalArgumentException("maxMappedBytes: " + maxMappedBytes);
+        synchronized (lock) {
+            this.mappedBudget = maxMappedBytes;
+            evictOverBudget(-1);
+        }
+    }
+
+    /**
+     * @return the number of bytes currently mapped.
+     */
+    public long mappedBytes() {
+        return mappedBytes.get();
+    }
+
+    /**
+     * @return the number of chunks mapped since this MappedFile was opened.
+     */
+    public long mapCount() {
+        return mapCount.get();
+    }
+
+    /**
+     * @return the number of chunks unmapped since this MappedFile was opened.
+     */
+    public long unmapCount() {
+        return unmapCount.get();
+    }
+
+    /**
+     * Called by a MappedBytesStore as it is unmapped.
+     */
+    void onUnmap(long mappedSize) {
+        mappedBytes.addAndGet(-mappedSize);
+        unmapCount.incrementAndGet();
+    }
+
+    public double getPreMapFraction() {
+        return preMapFraction;
+    }
+
+    /**
+     * Map the next chunk in the background once a writer has passed this fraction of the current
+     * chunk, so the resize and mapping don't happen on the writing thread.  The pages of the new
+     * chunk are touched so they are faulted in as well.  This takes effect for MappedBytes from the
+     * next chunk they write to.
+     *
+     * @param fraction of a chunk from 0 to 1 exclusive, or 0 to disable pre-mapping.
+     */
+    public void setPreMapFraction(double fraction) {
+        if (!(fraction >= 0 && fraction < 1))
+            throw new IllegalArgumentException("fraction: " + fraction + " not in the range [0, 1)");
+        if (fraction > 0)
+            helper();
+        this.preMapFraction = fraction;
+    }
+
+    public boolean isPreTouch() {
+        return preTouch;
+    }
+
+    /**
+     * Touch every page of a newly mapped chunk in the background, so a writer doesn't take a page
+     * fault the first time it writes to each page.
+     */
+    public void setPreTouch(boolean preTouch) {
+        if (preTouch)
+            helper();
+        this.preTouch = preTouch;
+    }
+
+    /**
+     * Give a hint as to how a range of this file will be accessed.  Hints which pre-fetch the range
+     * fault it in on a background thread, mapping any chunks needed.  SEQUENTIAL is treated as
+     * WILL_NEED, i.e. the whole range is faulted in rather than just ahead of the reader.
+     * DONT_NEED unmaps the chunks entirely inside the range which are not reserved by anything
+     * else.  NORMAL and RANDOM have no effect.
+     *
+     * @param from the start of the range
+     * @param to   the end of the range, exclusive
+     * @param hint how the range will be accessed
+     * @return true if the hint will be acted on.
+     */
+    public boolean advise(long from, long to, @NotNull MappedAccessHint hint) {
+        if (from < 0 || to < from)
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+        if (hint == MappedAccessHint.DONT_NEED)
+            return dontNeed(from, to);
+        if (!hint.preFetch() || from == to)
+            return false;
+        ExecutorService helper = helper();
+        if (helper == null)
+            return false;
+        try {
+            helper.execute(() -> {
+                // a read only file can't be extended.
+                long to2 = readOnly ? Math.min(to, actualSize()) : to;
+                for (long position = from; position < to2 && !closed.get(); ) {
+                    MappedBytesStore mbs;
+                    try {
+                        mbs = acquireByteStore(position, MappedBytesStore::new, false);
+                    } catch (IOException | RuntimeException e) {
+                        if (!closed.get())
+                            LOG.warn("Failed to map " + position + " of " + file, e);
+                        return;
+                    }
+                    long end = Math.min(to2, mbs.safeLimit());
+                    touchPages(mbs, position, end, false);
+                    mbs.release();
+                    position = end;
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private boolean dontNeed(long from, long to) {
+        synchronized (lock) {
+            if (closed.get())
+                return false;
+            long first = (from + chunkSize - 1) / chunkSize;
+            long end = Math.min(to / chunkSize, storesUsed);
+            for (int chunk = (int) first; chunk < end; chunk++) {
+                MappedBytesStore mbs = get(stores.get(chunk));
+                if (mbs != null && mbs.refCount() == 1)
+                    unmap(chunk, mbs);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the background thread's executor, creating it if needed, or null if closed.
+     */
+    @Nullable
+    private ExecutorService helper() {
+        synchronized (lock) {
+            if (helper == null && !closed.get())
+                helper = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "mapped-file~" + file.getName());
+                    t.setDaemon(true);
+                    return t;
+                });
+            return helper;
+        }
+    }
+
+    /**
+     * Touch a range of pages of a store in the background, holding a reservation until done.
+     */
+    private void inBackground(@NotNull MappedBytesStore mbs, long from, long to, boolean forWrite) {
+        ExecutorService helper = helper();
+        if (helper == null)
+            return;
+        mbs.reserve();
+        try {
+            helper.execute(() -> {
+                try {
+                    touchPages(mbs, from, to, forWrite);
+                } finally {
+                    mbs.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mbs.release();
+        }
+    }
+
+    /**
+     * @param chunkStart the start of the chunk being written to
+     * @return the write position at which the next chunk should be pre-mapped, or Long.MAX_VALUE if
+     * pre-mapping is disabled.
+     */
+    long preMapPosition(long chunkStart) {
+        double fraction = preMapFraction;
+        return fraction > 0 ? chunkStart + (long) (chunkSize * fraction) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Map the chunk after the one containing position in the background, unless it has been
+     * requested already.
+     */
+    void preMap(long position) {
+        int chunk = (int) (position / chunkSize) + 1;
+        int last = preMapChunk.get();
+        if (chunk <= last || !preMapChunk.compareAndSet(last, chunk))
+            return;
+        ExecutorService helper;
+        synchronized (lock) {
+            helper = this.helper;
+        }
+        if (helper == null)
+            return;
+        try {
+            helper.execute(() -> preMap0(chunk));
+        } catch (RejectedExecutionException e) {
+            // closed.
+        }
+    }
+
+    private void preMap0(int chunk) {
+        if (closed.get())
+            return;
+        MappedBytesStore mbs;
+        try {
+            mbs = acquireByteStore(chunk * chunkSize, MappedBytesStore::new, false);
+        } catch (IOException | RuntimeException e) {
+            if (!closed.get())
+                LOG.warn("Failed to pre-map chunk " + chunk + " of " + file, e);
+            return;
+        }
+        touchPages(mbs, mbs.start(), mbs.capacity(), true);
+        MappedBytesStore previous = preMapped;
+        preMapped = mbs;
+        if (previous != null)
+            previous.release();
+    }
+
+    /**
+     * Fault in the pages in a range.  For writing, a CAS of 0 to 0 is used as it can't change the
+     * data, even if another thread or process is writing to it.
+     */
+    private void touchPages(@NotNull MappedBytesStore mbs, long from, long to, boolean forWrite) {
+        int pageSize = OS.pageSize();
+        for (long offset = from - from % pageSize; offset < to && !closed.get(); offset += pageSize) {
+            if (offset < mbs.start())
+                continue;
+            if (forWrite && !readOnly)
+                mbs.compareAndSwapInt(offset, 0, 0);
+            else
+                mbs.readVolatileByte(offset);
+        }
+    }
+
+    private void stopHelper() {
+        ExecutorService helper;
+        synchronized (lock) {
+            helper = this.helper;
+            this.helper = null;
+        }
+        if (helper == null)
+            return;
+        helper.shutdown();
+        try {
+            if (!helper.awaitTermination(1, TimeUnit.SECONDS))
+                LOG.warn("Timed out waiting for the background thread of " + file + " to stop");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        MappedBytesStore preMapped = this.preMapped;
+        this.preMapped = null;
+        if (preMapped != null)
+            preMapped.release();
+    }
+
+    /**
+     * Write the modified pages in a range of this file to disk and wait for it to complete.  The
+     * pages of chunks which are mapped are synced with msync.  If a chunk in the range is no longer
+     * mapped the whole file is synced instead, as its modified pages are still in the page cache.
+     *
+     * @param from the start of the range
+     * @param to   the end of the range, exclusive
+     */
+    public void sync(long from, long to) throws IOException {
+        if (from < 0 || to < from)
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+        if (readOnly || from == to)
+            return;
+        if (FORCE0 != null && syncMapped(from, to))
+            return;
+        fileChannel.force(false);
+    }
+
+    /**
+     * @return false if a chunk in the range was not mapped.
+     */
+    private boolean syncMapped(long from, long to) throws IOException {
+        long pageMask = OS.pageSize() - 1;
+        for (long position = from; position < to; ) {
+            MappedBytesStore mbs = tryAcquire(stores, (int) (position / chunkSize));
+            if (mbs == null)
+                return false;
+            try {
+                long end = Math.min(to, mbs.start() + chunkSize);
+                long address = mbs.address(position);
+                long start = address & ~pageMask;
+                FORCE0.invoke(FORCE0_BB, raf.getFD(), start, address + end - position - start);
+                position = end;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw new IOException(cause);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            } finally {
+                mbs.release();
+            }
+        }
+        return true;
+    }
+
     public long actualSize() {
         try {
             return fileChannel.size();
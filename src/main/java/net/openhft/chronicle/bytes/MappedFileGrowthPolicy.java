@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides how much a MappedFile grows when it needs to be extended.  Growing by more than one
+ * chunk at a time means the file lock needed to extend the file is taken less often.
+ */
+@FunctionalInterface
+public interface MappedFileGrowthPolicy {
+    /**
+     * @param size      the current size of the file
+     * @param minSize   the minimum size needed
+     * @param chunkSize the chunk size of the MappedFile
+     * @return the new size of the file, at least minSize.
+     */
+    long newSize(long size, long minSize, long chunkSize);
+
+    /**
+     * @return true if the new space should be allocated on disk by writing zeros, rather than
+     * leaving a sparse file.
+     */
+    default boolean preallocate() {
+        return false;
+    }
+
+    /**
+     * Extend the file to the size needed, leaving it sparse.  This is the default.
+     */
+    @NotNull
+    static MappedFileGrowthPolicy sparse() {
+        return (size, minSize, chunkSize) -> minSize;
+    }
+
+    /**
+     * Grow the file by a factor of its current size, rounded to whole chunks, leaving it sparse.
+     *
+     * @param factor greater than 1
+     */
+    @NotNull
+    static MappedFileGrowthPolicy geometric(double factor) {
+        if (!(factor > 1))
+            throw new IllegalArgumentException("factor: " + factor + " must be greater than 1");
+        return (size, minSize, chunkSize) -> {
+            long grown = (long) (size * factor);
+            if (grown <= minSize)
+                return minSize;
+            // keep the same overlap past the end of the last chunk.
+            return minSize + (grown - minSize + chunkSize - 1) / chunkSize * chunkSize;
+        };
+    }
+
+    /**
+     * Extend the file by chunksAhead chunks beyond what is needed and write zeros to allocate the
+     * space on disk, so writes to the new chunks don't need to allocate blocks.
+     *
+     * @param chunksAhead the number of extra chunks, at least 0
+     */
+    @NotNull
+    static MappedFileGrowthPolicy preallocate(int chunksAhead) {
+        if (chunksAhead < 0)
+            throw new IllegalArgumentException("chunksAhead: " + chunksAhead);
+        return new MappedFileGrowthPolicy() {
+            @Override
+            public long newSize(long size, long minSize, long chunkSize) {
+                return minSize + chunksAhead * chunkSize;
+            }
+
+            @Override
+            public boolean preallocate() {
+                return true;
+            }
+        };
+    }
+}
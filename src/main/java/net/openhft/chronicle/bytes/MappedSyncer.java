@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.ref.BinaryLongReference;
+import net.openhft.chronicle.bytes.ref.LongReference;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit for a MappedFile.  The writer appends at memory speed and tells this syncer how far
+ * it has written, and a background thread syncs what has been written to disk at a fixed interval,
+ * or sooner once a threshold of bytes is waiting.  How much can be lost on a crash is bounded by the
+ * interval and threshold.
+ * <p></p>
+ * The position up to which the file is known to be on disk is published in a LongReference, which
+ * can be in shared memory, e.g. the header of the file, for other processes to read.
+ */
+public class MappedSyncer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedSyncer.class);
+
+    @NotNull
+    private final MappedFile mappedFile;
+    private final long intervalNs;
+    private final long byteThreshold;
+    @NotNull
+    private final LongReference durablePosition;
+    private final AtomicLong writtenPosition = new AtomicLong();
+    @NotNull
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    // only accessed by the writer.
+    private long requestedPosition;
+
+    /**
+     * @param mappedFile    to sync
+     * @param interval      the longest time written data waits to be synced
+     * @param unit          of the interval
+     * @param byteThreshold how many bytes can be waiting before they are synced early
+     */
+    public MappedSyncer(@NotNull MappedFile mappedFile, long interval, @NotNull TimeUnit unit, long byteThreshold) {
+        this(mappedFile, interval, unit, byteThreshold, null);
+    }
+
+    /**
+     * @param durablePosition where to publish the position synced to, or null to hold it in memory.
+     *                        It is assumed the data up to its current value is already on disk.
+     */
+    public MappedSyncer(@NotNull MappedFile mappedFile, long interval, @NotNull TimeUnit unit, long byteThreshold,
+                        @Nullable LongReference durablePosition) {
+        if (interval <= 0 || byteThreshold <= 0)
+            throw new IllegalArgumentException("interval: " + interval + ", byteThreshold: " + byteThreshold);
+        this.mappedFile = mappedFile;
+        this.intervalNs = unit.toNanos(interval);
+        this.byteThreshold = byteThreshold;
+        if (durablePosition == null) {
+            durablePosition = new BinaryLongReference();
+            durablePosition.bytesStore(BytesStore.wrap(new byte[8]), 0, 8);
+        }
+        this.durablePosition = durablePosition;
+        this.requestedPosition = durablePosition.getVolatileValue();
+        this.writtenPosition.set(requestedPosition);
+        mappedFile.reserve();
+        this.thread = new Thread(this::run, "mapped-syncer~" + mappedFile.file().getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called by the writer when the data up to position is complete and can be synced.
+     */
+    public void written(long position) {
+        if (position <= writtenPosition.get())
+            return;
+        writtenPosition.lazySet(position);
+        if (position - requestedPosition >= byteThreshold) {
+            requestedPosition = position;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * @return the position up to which the file has been synced.
+     */
+    @NotNull
+    public LongReference durablePosition() {
+        return durablePosition;
+    }
+
+    private void run() {
+        long synced = durablePosition.getVolatileValue();
+        while (!closed) {
+            LockSupport.parkNanos(this, intervalNs);
+            synced = sync(synced);
+        }
+        sync(synced);
+    }
+
+    private long sync(long synced) {
+        long written = writtenPosition.get();
+        if (written <= synced)
+            return synced;
+        try {
+            mappedFile.sync(synced, written);
+            durablePosition.setOrderedValue(written);
+            return written;
+        } catch (IOException e) {
+            LOG.warn("Failed to sync " + mappedFile.file() + " from " + synced + " to " + written, e);
+            return synced;
+        }
+    }
+
+    /**
+     * Sync anything written so far and stop the background thread.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mappedFile.release();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free, multi producer, single consumer ring buffer of length prefixed messages.
+ * <p></p>
+ * Producers claim space by a CAS of the write position, copy in the payload and then publish the
+ * record with an ordered write of its header. A header of 0 means the record is not ready yet, so
+ * the consumer never sees a partially written message even though later records may already be
+ * complete. Unused space in a claimed record is filled with a padding record. The consumer zeros
+ * the space it has read before freeing it with an ordered write of the read position, and the data
+ * is zeroed when a ring buffer which has never been written to is created, so it must not be in
+ * use by another thread or process at the time.
+ */
+public class MultiProducerBytesRingBuffer extends AbstractBytesRingBuffer {
+    static final int READY = 1 << 30;
+
+    private final LongAdder writeCount = new LongAdder();
+    private final AtomicLong maxCopyTimeNs = new AtomicLong();
+    private final ThreadLocal<Claim> claims = ThreadLocal.withInitial(Claim::new);
+    // shared by the producers, can be stale but never ahead of the consumer.
+    private volatile long cachedReadPosition;
+
+    public MultiProducerBytesRingBuffer(@NotNull BytesStore bytesStore) {
+        super(bytesStore);
+        // a new ring buffer, the headers must be zero whatever the store contained before.
+        if (readPosition == 0 && bytesStore.readVolatileLong(WRITE_POSITION) == 0)
+            bytesStore.zeroOut(DATA, DATA + capacity);
+        this.cachedReadPosition = readPosition;
+    }
+
+    @Override
+    public void clear() {
+        long writePosition = bytesStore.readVolatileLong(WRITE_POSITION);
+        while (readPosition < writePosition) {
+            long offset = DATA + (readPosition & mask);
+            int header = bytesStore.readVolatileInt(offset);
+            if (header == 0)
+                break;
+            long size = header < 0 ? -header : recordSize(header & ~READY);
+            bytesStore.zeroOut(offset, offset + size);
+            readPosition += size;
+        }
+        bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     */
+    @Override
+    public boolean offer(@NotNull BytesStore bytes0) {
+        long start = System.nanoTime();
+        long length = bytes0.readRemaining();
+        long offset = reserve(checkedRecordSize(length));
+        if (offset < 0)
+            return false;
+        bytesStore.write(offset + LENGTH_SIZE, bytes0, bytes0.readPosition(), length);
+        bytesStore.writeOrderedInt(offset, (int) length | READY);
+        onWrite(start);
+        return true;
+    }
+
+    /**
+     * The space for maxLength is claimed immediately, so unused space is left as padding.
+     *
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     * @throws IllegalStateException    if this thread's previous claim was not committed.
+     */
+    @Nullable
+    @Override
+    public Bytes<Void> claim(int maxLength) {
+        Claim claim = claims.get();
+        if (claim.offset >= 0)
+            throw new IllegalStateException("The previous claim has not been committed");
+        long offset = reserve(checkedRecordSize(maxLength));
+        return offset < 0 ? null : claim.claim(bytesStore, offset, maxLength);
+    }
+
+    @Override
+    public void commit(int actualLength) throws IllegalStateException {
+        Claim claim = claims.get();
+        claim.checkCommit(actualLength);
+        int recordSize = recordSize(actualLength);
+        int unused = recordSize(claim.maxLength) - recordSize;
+        if (unused > 0)
+            bytesStore.writeOrderedInt(claim.offset + recordSize, -unused);
+        bytesStore.writeOrderedInt(claim.offset, actualLength | READY);
+        claim.offset = -1;
+        onWrite(claim.startNs);
+    }
+
+    /**
+     * Claims space with a CAS of the write position and writes a padding record if the message
+     * won't fit before the end of the buffer.
+     *
+     * @return the offset in the BytesStore for the message header, or -1 if there is not enough space.
+     */
+    private long reserve(int recordSize) {
+        // the capacity is at most MAX_CAPACITY, so the length and padding never reach the READY bit.
+        assert recordSize <= MAX_CAPACITY && MAX_CAPACITY <= READY;
+
+        long writePosition, offset, toEnd;
+        for (; ; ) {
+            writePosition = bytesStore.readVolatileLong(WRITE_POSITION);
+            offset = writePosition & mask;
+            toEnd = capacity - offset;
+            long required = recordSize <= toEnd ? recordSize : toEnd + recordSize;
+            if (writePosition + required - cachedReadPosition > capacity) {
+                long readPosition = bytesStore.readVolatileLong(READ_POSITION);
+                cachedReadPosition = readPosition;
+                if (writePosition + required - readPosition > capacity)
+                    return -1;
+            }
+            if (bytesStore.compareAndSwapLong(WRITE_POSITION, writePosition, writePosition + required))
+                break;
+        }
+
+        if (recordSize > toEnd) {
+            bytesStore.writeOrderedInt(DATA + offset, (int) -toEnd);
+            offset = 0;
+        }
+        return DATA + offset;
+    }
+
+    private void onWrite(long startNs) {
+        writeCount.increment();
+        long time = System.nanoTime() - startNs;
+        if (time > maxCopyTimeNs.get())
+            maxCopyTimeNs.accumulateAndGet(time, Math::max);
+    }
+
+    @Override
+    public boolean read(@NotNull BytesOut using) throws IllegalStateException {
+        long readPosition0 = readPosition;
+        long offset = nextMessageOffset();
+        if (offset < 0) {
+            if (readPosition != readPosition0)
+                bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+            return false;
+        }
+
+        int length = bytesStore.readInt(offset) & ~READY;
+        if (length > using.writeRemaining())
+            throw new IllegalStateException("Not enough space to read a message of " + length + " bytes, writeRemaining: " + using.writeRemaining());
+        using.write(bytesStore, offset + LENGTH_SIZE, length);
+        int recordSize = recordSize(length);
+        bytesStore.zeroOut(offset, offset + recordSize);
+        readPosition += recordSize;
+        bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+        onRead(bytesStore.readVolatileLong(WRITE_POSITION), 1);
+        return true;
+    }
+
+    @Override
+    public int drainTo(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+        long readPosition0 = readPosition;
+        int count = 0;
+        for (; count < maxMessages; count++) {
+            long offset = nextMessageOffset();
+            if (offset < 0)
+                break;
+            int length = bytesStore.readInt(offset) & ~READY;
+            handler.readMarshallable(view(offset + LENGTH_SIZE, length));
+            int recordSize = recordSize(length);
+            bytesStore.zeroOut(offset, offset + recordSize);
+            readPosition += recordSize;
+        }
+        if (readPosition != readPosition0)
+            bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+        if (count > 0)
+            onRead(bytesStore.readVolatileLong(WRITE_POSITION), count);
+        return count;
+    }
+
+    /**
+     * Skips and zeros any padding records at the read position, either at the end of the buffer
+     * or left by a claim which committed less than it claimed.
+     *
+     * @return the offset in the BytesStore of the next ready message, or -1 if there is none.
+     */
+    long nextMessageOffset() {
+        long offset = DATA + (readPosition & mask);
+        int header = bytesStore.readVolatileInt(offset);
+        while (header < 0) {
+            bytesStore.zeroOut(offset, offset - header);
+            readPosition -= header;
+            offset = DATA + (readPosition & mask);
+            header = bytesStore.readVolatileInt(offset);
+        }
+        return header == 0 ? -1 : offset;
+    }
+
+    @Override
+    public long getAndClearWriteCount() {
+        return writeCount.sumThenReset();
+    }
+
+    @Override
+    public long maxCopyTimeNs() {
+        return maxCopyTimeNs.getAndSet(0);
+    }
+}
@@ -36,6 +36,10 @@ import static net.openhft.chronicle.bytes.NoBytesStore.noBytesStore;
 public class NativeBytes<Underlying> extends VanillaBytes<Underlying> {
 
     private static final Logger LOG = LoggerFactory.getLogger(NativeBytes.class);
+    private static final NativeBytesGrowthPolicy DEFAULT_GROWTH_POLICY = NativeBytesGrowthPolicy.fiftyPercent();
+
+    @NotNull
+    private NativeBytesGrowthPolicy growthPolicy = DEFAULT_GROWTH_POLICY;
 
     NativeBytes(@NotNull BytesStore store) throws IllegalStateException {
         super(store, 0, MAX_CAPACITY);
@@ -79,6 +83,21 @@ public class NativeBytes<Underlying> extends VanillaBytes<Underlying> {
         return MAX_CAPACITY;
     }
 
+    @NotNull
+    public NativeBytesGrowthPolicy growthPolicy() {
+        return growthPolicy;
+    }
+
+    /**
+     * @param growthPolicy how much to grow by when more space is needed.
+     * @return this
+     */
+    @NotNull
+    public NativeBytes<Underlying> growthPolicy(@NotNull NativeBytesGrowthPolicy growthPolicy) {
+        this.growthPolicy = growthPolicy;
+        return this;
+    }
+
     @Override
     protected void writeCheckOffset(long offset, long adding)
             throws BufferOverflowException, IllegalArgumentException, IORuntimeException {
@@ -139,11 +158,18 @@ public class NativeBytes<Underlying> extends VanillaBytes<Underlying> {
             throw new IllegalArgumentException(endOfBuffer + " < 0");
         if (endOfBuffer > capacity())
             throw new BufferOverflowException();
-        // grow by 50% rounded up to the next pages size
+        // grow as the policy decides rounded up to the next pages size
         long ps = OS.pageSize();
-        long size = (Math.max(endOfBuffer, bytesStore.realCapacity() * 3 / 2) + ps) & ~(ps - 1);
+        long size = (Math.max(endOfBuffer, growthPolicy.newCapacity(bytesStore.realCapacity(), endOfBuffer)) + ps) & ~(ps - 1);
         if (capacity() < Long.MAX_VALUE)
             size = Math.min(size, capacity());
+        if (growthPolicy.reallocate() && bytesStore instanceof NativeBytesStore) {
+            NativeBytesStore store = ((NativeBytesStore) bytesStore).reallocate(size);
+            if (store != null) {
+                bytesStore = store;
+                return;
+            }
+        }
         NativeBytesStore store;
         if (bytesStore.underlyingObject() instanceof ByteBuffer) {
             store = NativeBytesStore.elasticByteBuffer(Maths.toInt32(size), capacity());
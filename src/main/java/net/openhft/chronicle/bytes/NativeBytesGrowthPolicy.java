@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides how much elastic NativeBytes grow by when they need more space.  The result is rounded
+ * up to a whole number of pages.
+ */
+@FunctionalInterface
+public interface NativeBytesGrowthPolicy {
+    /**
+     * @param capacity the current real capacity
+     * @param required the capacity needed
+     * @return the new capacity, at least required.
+     */
+    long newCapacity(long capacity, long required);
+
+    /**
+     * @return true if native memory should be grown in place with realloc where possible, rather
+     * than allocating new memory and copying.
+     */
+    default boolean reallocate() {
+        return false;
+    }
+
+    /**
+     * Grow by 50%, the default.
+     */
+    @NotNull
+    static NativeBytesGrowthPolicy fiftyPercent() {
+        return (capacity, required) -> Math.max(required, capacity * 3 / 2);
+    }
+
+    /**
+     * Double the capacity, for buffers which grow quickly to a large size.
+     */
+    @NotNull
+    static NativeBytesGrowthPolicy doubling() {
+        return (capacity, required) -> Math.max(required, capacity * 2);
+    }
+
+    /**
+     * Grow by a fixed amount, for buffers which grow slowly.
+     *
+     * @param increment the minimum number of bytes to grow by.
+     */
+    @NotNull
+    static NativeBytesGrowthPolicy fixedIncrement(long increment) {
+        if (increment <= 0)
+            throw new IllegalArgumentException("increment: " + increment);
+        return (capacity, required) -> Math.max(required, capacity + increment);
+    }
+
+    /**
+     * Use the sizes of another policy, but grow native memory with realloc, which for large
+     * allocations can remap the pages instead of copying them.  Memory which is shared, e.g.
+     * reserved by another Bytes, or wraps a ByteBuffer is still copied.
+     *
+     * @param policy for the sizes.
+     */
+    @NotNull
+    static NativeBytesGrowthPolicy reallocating(@NotNull NativeBytesGrowthPolicy policy) {
+        return new NativeBytesGrowthPolicy() {
+            @Override
+            public long newCapacity(long capacity, long required) {
+                return policy.newCapacity(capacity, required);
+            }
+
+            @Override
+            public boolean reallocate() {
+                return true;
+            }
+        };
+    }
+}
@@ -37,6 +37,7 @@ public class NativeBytesStore<Underlying>
         extends AbstractBytesStore<NativeBytesStore<Underlying>, Underlying> {
     private static final long MEMORY_MAPPED_SIZE = 128 << 10;
     private static final Logger LOGGER = LoggerFactory.getLogger(NativeBytesStore.class);
+    private static final Error RELEASED = new Error("Released, run with debug enabled to see where");
     private static final Field BB_ADDRESS, BB_CAPACITY;
 
     static {
@@ -55,9 +56,14 @@ public class NativeBytesStore<Underlying>
     Error releasedHere;
     @Nullable
     private Cleaner cleaner;
+    // set if this store owns malloc'ed memory which can be reallocated.
+    @Nullable
+    private Deallocator deallocator;
     private final ReferenceCounter refCount = ReferenceCounter.onReleased(this::performRelease);
     private boolean elastic;
     @Nullable
+    private ByteBuffer view;
+    @Nullable
     private Underlying underlyingObject;
 
     private NativeBytesStore() {
@@ -77,6 +83,7 @@ public class NativeBytesStore<Underlying>
         setAddress(address);
         this.maximumLimit = maximumLimit;
         cleaner = deallocator == null ? null : Cleaner.create(this, deallocator);
+        this.deallocator = deallocator instanceof Deallocator ? (Deallocator) deallocator : null;
         underlyingObject = null;
         this.elastic = elastic;
     }
@@ -121,6 +128,19 @@ public class NativeBytesStore<Underlying>
         return of(capacity, true, false);
     }
 
+    /**
+     * A zeroed store backed by huge pages, to reduce TLB misses for large stores accessed at
+     * random.  This uses explicit huge pages from hugetlbfs if available, otherwise memory aligned
+     * to the huge page size which can use transparent huge pages if they are enabled.
+     *
+     * @param capacity of the store, rounded up to a whole number of huge pages for the allocation.
+     */
+    @NotNull
+    public static NativeBytesStore<Void> hugePageStoreWithFixedCapacity(long capacity)
+            throws IllegalArgumentException {
+        return HugePages.nativeStoreWithFixedCapacity(capacity);
+    }
+
     @NotNull
     public static NativeBytesStore<Void> lazyNativeBytesStoreWithFixedCapacity(long capacity)
             throws IllegalArgumentException {
@@ -473,8 +493,9 @@ public class NativeBytesStore<Underlying>
         if (refCount.get() > 0) {
             LOGGER.info("NativeBytesStore discarded without releasing ", createdHere);
         }
+        // a stack trace per store costs more than the malloc, so only record where in debug mode.
         if (releasedHere == null)
-            releasedHere = new Error();
+            releasedHere = Jvm.isDebug() ? new Error("Released here") : RELEASED;
         memory = null;
         if (cleaner != null)
             cleaner.clean();
@@ -610,6 +631,30 @@ public class NativeBytesStore<Underlying>
             return super.copyTo(store);
     }
 
+    /**
+     * Resize malloc'ed memory with realloc, which can avoid a copy, and release this store.
+     *
+     * @param newCapacity of the store
+     * @return the new store, or null if this store is shared or doesn't own the whole of a block of
+     * malloc'ed memory, e.g. it is aligned within a larger block.
+     */
+    @Nullable
+    NativeBytesStore<Void> reallocate(long newCapacity) {
+        Deallocator deallocator = this.deallocator;
+        if (deallocator == null || deallocator.address != address || refCount() != 1)
+            return null;
+        long address2 = UnsafeMemory.UNSAFE.reallocateMemory(address, newCapacity);
+        if (address2 == 0)
+            throw new OutOfMemoryError("Unable to reallocate " + newCapacity + " bytes");
+        // the old address is no longer valid.
+        deallocator.address = 0;
+        // freeing nothing adjusts the native memory used by the change in size.
+        memory.freeMemory(0, deallocator.size - newCapacity);
+        NativeBytesStore<Void> store = new NativeBytesStore<>(address2, newCapacity, new Deallocator(address2, newCapacity), elastic);
+        release();
+        return store;
+    }
+
     public long copyTo(NativeBytesStore store) {
         long addr = address;
         long addr2 = store.address;
@@ -621,6 +666,36 @@ public class NativeBytesStore<Underlying>
         return read;
     }
 
+    /**
+     * As this store can be shared between threads, e.g. a chunk of a MappedFile, the view should only
+     * be used by the thread which owns the store.  Bytes have a view of their own.
+     */
+    @NotNull
+    @Override
+    public ByteBuffer byteBufferView(long offset, int length) throws BufferUnderflowException {
+        if (offset < start() || length < 0 || offset + length > safeLimit())
+            throw new BufferUnderflowException();
+        ByteBuffer bb = view;
+        if (bb == null)
+            view = bb = ByteBuffer.allocateDirect(0);
+        return view(bb, address + translate(offset), length);
+    }
+
+    /**
+     * Point a direct ByteBuffer at some native memory, and clear it, without allocating.
+     */
+    @NotNull
+    static ByteBuffer view(@NotNull ByteBuffer bb, long address, int length) {
+        try {
+            BB_ADDRESS.setLong(bb, address);
+            BB_CAPACITY.setInt(bb, length);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        bb.clear();
+        return bb;
+    }
+
     @Override
     public ByteBuffer toTemporaryDirectByteBuffer() {
         ByteBuffer bb = ByteBuffer.allocateDirect(0);
@@ -684,7 +759,8 @@ public class NativeBytesStore<Underlying>
 
     static class Deallocator implements Runnable {
 
-        private volatile long address, size;
+        private volatile long address;
+        private final long size;
 
         Deallocator(long address, long size) {
             assert address != 0;
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of fixed capacity NativeBytesStores in power of 2 size classes, which return their
+ * memory to the pool when released to a refCount of 0.  This avoids a malloc and a Cleaner for
+ * each store, e.g. for temporary buffers.
+ * <p></p>
+ * Memory is carved from slabs which are only freed when the pool is closed.  Each thread has a
+ * small cache for each size class, which is refilled from and flushed to the shared arena in
+ * batches.  Stores larger than the largest size class are allocated as usual.
+ * <p></p>
+ * The contents of a pooled store are not zeroed.  All the stores must be released before the pool
+ * is closed.  Blocks cached by a thread are not reused after that thread dies.
+ */
+public class NativeBytesStorePool implements Closeable {
+    static final int MIN_SIZE_BITS = 6;
+    private static final int CACHE_SIZE = 16;
+    private static final NativeBytesStorePool GLOBAL = new NativeBytesStorePool(1 << 20, 1 << 20);
+
+    private final int maxSizeBits;
+    private final long slabSize;
+    private final Arena[] arenas;
+    private final ThreadLocal<Cache> caches;
+    private final List<long[]> slabs = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param maxPooledSize the largest size class, rounded up to a power of 2.
+     * @param slabSize      the minimum size of memory to allocate at once.
+     */
+    public NativeBytesStorePool(long maxPooledSize, long slabSize) {
+        if (maxPooledSize < 1 << MIN_SIZE_BITS || maxPooledSize > 1 << 30)
+            throw new IllegalArgumentException("maxPooledSize: " + maxPooledSize);
+        this.maxSizeBits = 63 - Long.numberOfLeadingZeros(Maths.nextPower2(maxPooledSize, 1 << MIN_SIZE_BITS));
+        this.slabSize = slabSize;
+        this.arenas = new Arena[maxSizeBits - MIN_SIZE_BITS + 1];
+        for (int i = 0; i < arenas.length; i++)
+            arenas[i] = new Arena(MIN_SIZE_BITS + i);
+        this.caches = ThreadLocal.withInitial(() -> new Cache(arenas.length));
+    }
+
+    /**
+     * @return a pool shared by the whole JVM, with size classes up to 1 MB.
+     */
+    @NotNull
+    public static NativeBytesStorePool global() {
+        return GLOBAL;
+    }
+
+    static int sizeClass(long capacity) {
+        return Math.max(0, 64 - Long.numberOfLeadingZeros(capacity - 1) - MIN_SIZE_BITS);
+    }
+
+    /**
+     * @param capacity of the store.
+     * @return a store of exactly this capacity, which is not zeroed.
+     */
+    @NotNull
+    public NativeBytesStore<Void> acquire(long capacity) throws IllegalArgumentException, IllegalStateException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass >= arenas.length)
+            return NativeBytesStore.lazyNativeBytesStoreWithFixedCapacity(capacity);
+        if (closed)
+            throw new IllegalStateException("Closed");
+
+        Cache cache = caches.get();
+        long[] blocks = cache.blocks[sizeClass];
+        int count = cache.counts[sizeClass];
+        if (count == 0)
+            count = arenas[sizeClass].take(blocks);
+        long address = blocks[--count];
+        cache.counts[sizeClass] = count;
+        return new PooledNativeBytesStore(this, address, capacity, sizeClass);
+    }
+
+    /**
+     * @param capacity of the Bytes
+     * @return Bytes for writing backed by a pooled store, which is returned to the pool when the
+     * Bytes are released.
+     */
+    @NotNull
+    public VanillaBytes<Void> allocateDirect(long capacity) throws IllegalArgumentException, IllegalStateException {
+        NativeBytesStore<Void> bs = acquire(capacity);
+        try {
+            return bs.bytesForWrite();
+        } finally {
+            bs.release();
+        }
+    }
+
+    void free(long address, int sizeClass) {
+        if (closed)
+            return;
+        Cache cache = caches.get();
+        long[] blocks = cache.blocks[sizeClass];
+        int count = cache.counts[sizeClass];
+        if (count == blocks.length)
+            count = arenas[sizeClass].give(blocks);
+        blocks[count++] = address;
+        cache.counts[sizeClass] = count;
+    }
+
+    /**
+     * @return the total size of the slabs allocated.
+     */
+    public long slabBytes() {
+        synchronized (slabs) {
+            long total = 0;
+            for (long[] slab : slabs)
+                total += slab[1];
+            return total;
+        }
+    }
+
+    /**
+     * Free all the slabs.  This must not be called on the global pool.
+     */
+    @Override
+    public void close() {
+        if (this == GLOBAL)
+            throw new IllegalStateException("The global pool can't be closed");
+        synchronized (slabs) {
+            if (closed)
+                return;
+            closed = true;
+            Memory memory = OS.memory();
+            for (long[] slab : slabs)
+                memory.freeMemory(slab[0], slab[1]);
+            slabs.clear();
+        }
+    }
+
+    static final class Cache {
+        final long[][] blocks;
+        final int[] counts;
+
+        Cache(int sizeClasses) {
+            blocks = new long[sizeClasses][CACHE_SIZE];
+            counts = new int[sizeClasses];
+        }
+    }
+
+    final class Arena {
+        private final long blockSize;
+        private long[] free = new long[CACHE_SIZE];
+        private int count = 0;
+
+        Arena(int sizeBits) {
+            this.blockSize = 1L << sizeBits;
+        }
+
+        /**
+         * Move half a cache worth of blocks into an empty thread local cache.
+         *
+         * @return the number of blocks taken.
+         */
+        synchronized int take(long[] blocks) {
+            int n = CACHE_SIZE / 2;
+            if (count < n)
+                allocateSlab();
+            count -= n;
+            System.arraycopy(free, count, blocks, 0, n);
+            return n;
+        }
+
+        /**
+         * Move half the blocks from a full thread local cache.
+         *
+         * @return the number of blocks left in the cache.
+         */
+        synchronized int give(long[] blocks) {
+            int n = CACHE_SIZE / 2;
+            if (count + n > free.length) {
+                long[] free2 = new long[free.length * 2];
+                System.arraycopy(free, 0, free2, 0, count);
+                free = free2;
+            }
+            System.arraycopy(blocks, blocks.length - n, free, count, n);
+            count += n;
+            return blocks.length - n;
+        }
+
+        private void allocateSlab() {
+            long size = Math.max(slabSize, blockSize * (CACHE_SIZE / 2));
+            size -= size % blockSize;
+            long address = OS.memory().allocate(size);
+            synchronized (slabs) {
+                if (closed) {
+                    OS.memory().freeMemory(address, size);
+                    throw new IllegalStateException("Closed");
+                }
+                slabs.add(new long[]{address, size});
+            }
+            int blocks = (int) (size / blockSize);
+            if (count + blocks > free.length) {
+                long[] free2 = new long[Math.max(free.length * 2, count + blocks)];
+                System.arraycopy(free, 0, free2, 0, count);
+                free = free2;
+            }
+            for (int i = blocks - 1; i >= 0; i--)
+                free[count++] = address + i * blockSize;
+        }
+    }
+}
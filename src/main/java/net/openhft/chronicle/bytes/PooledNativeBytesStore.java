@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A NativeBytesStore whose memory is returned to a NativeBytesStorePool when released.
+ */
+class PooledNativeBytesStore extends NativeBytesStore<Void> {
+    private static final AtomicIntegerFieldUpdater<PooledNativeBytesStore> RETURNED =
+            AtomicIntegerFieldUpdater.newUpdater(PooledNativeBytesStore.class, "returned");
+
+    @NotNull
+    private final NativeBytesStorePool pool;
+    private final long block;
+    private final int sizeClass;
+    private volatile int returned = 0;
+
+    PooledNativeBytesStore(@NotNull NativeBytesStorePool pool, long address, long capacity, int sizeClass) {
+        super(address, capacity, null, false);
+        this.pool = pool;
+        this.block = address;
+        this.sizeClass = sizeClass;
+    }
+
+    @Override
+    public void release() throws IllegalStateException {
+        super.release();
+        if (refCount() == 0 && RETURNED.compareAndSet(this, 0, 1))
+            pool.free(block, sizeClass);
+    }
+}
@@ -564,6 +564,22 @@ public interface RandomDataInput extends RandomCommon {
         return bb;
     }
 
+    /**
+     * A direct ByteBuffer over some of the data, e.g. to pass to JDK APIs which only accept
+     * ByteBuffers such as a CRC32 or Deflater, without copying or allocating.  The same ByteBuffer
+     * is repointed on each call so it is only valid until the next call, and must not be used after
+     * this is released.
+     *
+     * @param offset of the first byte
+     * @param length of the view
+     * @return a ByteBuffer with a position of 0 and a limit of length.
+     * @throws UnsupportedOperationException if the data is not in native memory.
+     */
+    default ByteBuffer byteBufferView(long offset, int length)
+            throws BufferUnderflowException, UnsupportedOperationException, IORuntimeException {
+        throw new UnsupportedOperationException();
+    }
+
     default int fastHash(long offset, int length) {
         long hash = 0;
         int i = 0;
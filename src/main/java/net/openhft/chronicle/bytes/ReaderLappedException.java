@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+/**
+ * thrown when a reader of a BroadcastBytesRingBuffer has fallen so far behind that the data it
+ * was due to read has been overwritten.
+ */
+public class ReaderLappedException extends IllegalStateException {
+    private final long readPosition;
+
+    public ReaderLappedException(String message, long readPosition) {
+        super(message);
+        this.readPosition = readPosition;
+    }
+
+    /**
+     * @return the position the reader was at when it was lapped.
+     */
+    public long readPosition() {
+        return readPosition;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Bytes which read a file sequentially, e.g. to replay data written by a SequentialFileWriter.
+ * <p></p>
+ * The file is read in aligned blocks into one of two native buffers while the other is being
+ * consumed, so reading ahead happens in the background.  The file is opened for direct IO,
+ * bypassing the page cache, where the JVM and file system support it.
+ * <p></p>
+ * Each buffer has a page of headroom before its block, into which the end of the previous block is
+ * copied, so a value which straddles two blocks can still be read in one access.  A single read
+ * can be at most a page, larger arrays are split up.  Reading out of order is supported, but
+ * discards the read ahead.
+ */
+public class SequentialFileReader extends AbstractBytes<Void> implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    static final int HEADROOM = FileBufferBytesStore.ALIGNMENT;
+    private static final Logger LOG = LoggerFactory.getLogger(SequentialFileReader.class);
+
+    @NotNull
+    private final File file;
+    @NotNull
+    private final FileChannel channel;
+    @NotNull
+    private final FileBufferBytesStore[] buffers;
+    @NotNull
+    private final ExecutorService reader;
+    private final long blockSize;
+    private final long fileSize;
+    private int current = 0;
+    private boolean closed = false;
+
+    private SequentialFileReader(@NotNull File file, @NotNull FileChannel channel, long fileSize,
+                                 @NotNull FileBufferBytesStore[] buffers) throws IllegalStateException {
+        super((BytesStore) buffers[0], fileSize, fileSize);
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.buffers = buffers;
+        this.blockSize = buffers[0].size - HEADROOM;
+        this.reader = FileBufferBytesStore.newExecutor("file-reader~" + file.getName());
+        readPosition = 0;
+        try {
+            seek(0);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @NotNull
+    public static SequentialFileReader open(@NotNull File file) throws IOException {
+        return open(file, DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * Open a file to read from its start to its length when opened.
+     *
+     * @param file       to read
+     * @param bufferSize of each of the two buffers, rounded up to the page size.
+     * @param direct     whether to try to bypass the page cache.
+     */
+    @NotNull
+    public static SequentialFileReader open(@NotNull File file, int bufferSize, boolean direct) throws IOException {
+        FileChannel channel = FileBufferBytesStore.open(file.toPath(), direct, READ);
+        FileBufferBytesStore[] buffers;
+        try {
+            long size = Math.max(bufferSize, HEADROOM) + HEADROOM;
+            buffers = new FileBufferBytesStore[]{
+                    FileBufferBytesStore.allocate(size),
+                    FileBufferBytesStore.allocate(size)};
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new SequentialFileReader(file, channel, channel.size(), buffers);
+    }
+
+    @NotNull
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public long start() {
+        return 0L;
+    }
+
+    @Override
+    public long capacity() {
+        return fileSize;
+    }
+
+    @Override
+    public long realCapacity() {
+        return fileSize;
+    }
+
+    @Override
+    public boolean isElastic() {
+        return false;
+    }
+
+    @Override
+    public boolean isNative() {
+        return false;
+    }
+
+    @Override
+    public boolean sharedMemory() {
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException as only a window of the file is in memory.
+     */
+    @NotNull
+    @Override
+    public BytesStore<Bytes<Void>, Void> copy() {
+        throw new UnsupportedOperationException("Cannot copy a " + getClass().getSimpleName());
+    }
+
+    @Override
+    protected void readCheckOffset(long offset, long adding, boolean given)
+            throws BufferUnderflowException, IORuntimeException {
+        FileBufferBytesStore buffer = buffers[current];
+        if (offset >= buffer.validStart() && offset + adding <= buffer.safeLimit())
+            return;
+        if (closed)
+            throw new IllegalStateException("Closed " + file);
+        if (offset < 0 || offset + adding > fileSize)
+            throw new BufferUnderflowException();
+        if (adding == 0)
+            return;
+        if (adding > HEADROOM)
+            throw new IllegalArgumentException("Cannot read " + adding + " bytes at once, the maximum is " + HEADROOM);
+        if (offset < buffer.validStart() || offset >= buffer.safeLimit() + blockSize)
+            seek(offset);
+        while (offset + adding > buffers[current].safeLimit())
+            nextBuffer(offset);
+    }
+
+    /**
+     * Discard the read ahead and read the block containing offset.
+     */
+    private void seek(long offset) {
+        FileBufferBytesStore buffer = buffers[current];
+        buffer.awaitPending();
+        buffers[current ^ 1].awaitPending();
+        long blockStart = FileBufferBytesStore.alignDown(offset);
+        window(buffer, blockStart);
+        try {
+            readFully(buffer, blockStart);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+        readAhead(buffers[current ^ 1], buffer.safeLimit());
+    }
+
+    /**
+     * Switch to the buffer holding the next block, copying any data from offset to the end of this
+     * block into its headroom, and start reading the block after into this buffer.
+     */
+    private void nextBuffer(long offset) {
+        FileBufferBytesStore buffer = buffers[current];
+        FileBufferBytesStore next = buffers[current ^ 1];
+        next.awaitPending();
+
+        long end = buffer.safeLimit();
+        window(next, end);
+        if (offset < end) {
+            next.window(next.start(), offset, next.safeLimit());
+            OS.memory().copyMemory(buffer.address(offset), next.address(offset), end - offset);
+        }
+        readAhead(buffer, next.safeLimit());
+
+        next.reserve();
+        bytesStore.release();
+        bytesStore = (BytesStore) next;
+        current ^= 1;
+    }
+
+    private void window(@NotNull FileBufferBytesStore buffer, long blockStart) {
+        buffer.window(blockStart - HEADROOM, blockStart, Math.min(blockStart + blockSize, fileSize));
+    }
+
+    private void readAhead(@NotNull FileBufferBytesStore buffer, long blockStart) {
+        if (blockStart >= fileSize)
+            return;
+        window(buffer, blockStart);
+        ByteBuffer bb = buffer.ioBuffer(blockStart, Maths.toInt32(blockSize));
+        buffer.reserve();
+        buffer.pending(reader.submit(() -> {
+            try {
+                readFully(bb, blockStart);
+            } finally {
+                buffer.release();
+            }
+            return null;
+        }));
+    }
+
+    private void readFully(@NotNull FileBufferBytesStore buffer, long blockStart) throws IOException {
+        readFully(buffer.ioBuffer(blockStart, Maths.toInt32(blockSize)), blockStart);
+    }
+
+    private void readFully(@NotNull ByteBuffer bb, long position) throws IOException {
+        // always read whole blocks as direct IO requires it, the end of the file will be short.
+        while (bb.remaining() > 0) {
+            int len = channel.read(bb, position);
+            if (len < 0)
+                break;
+            position += len;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Bytes<Void> readSkip(long bytesToSkip) throws BufferUnderflowException, IORuntimeException {
+        readPosition(readPosition + bytesToSkip);
+        return this;
+    }
+
+    @Override
+    public int read(@NotNull byte[] bytes) throws IORuntimeException {
+        return read(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public int read(@NotNull byte[] bytes, int off, int len) throws IORuntimeException {
+        int len2 = (int) Math.min(len, readRemaining());
+        for (int i = 0; i < len2; i += HEADROOM) {
+            int len3 = Math.min(len2 - i, HEADROOM);
+            long offset = readOffsetPositionMoved(len3);
+            bytesStore.read(offset, bytes, off + i, len3);
+        }
+        return len2;
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            buffers[0].awaitPending();
+            buffers[1].awaitPending();
+        } finally {
+            FileBufferBytesStore.shutdown(reader);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close " + file, e);
+            }
+            buffers[0].release();
+            buffers[1].release();
+            release();
+        }
+    }
+}
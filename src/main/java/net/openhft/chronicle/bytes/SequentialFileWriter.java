@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Bytes which stream sequentially to a file, e.g. to archive large volumes of data without
+ * polluting the page cache as MappedBytes would.
+ * <p></p>
+ * Data is written to one of two aligned native buffers, and while one is written to the file in
+ * the background the other is filled.  Writes are whole aligned blocks, so the file is opened
+ * for direct IO, bypassing the page cache, where the JVM and file system support it.
+ * <p></p>
+ * Data can be written at any position at or after the start of the current buffer, however once
+ * a buffer has been written to the file it can't be changed, nor read.  A single write can be at
+ * most half the buffer size, larger arrays are split up.
+ */
+public class SequentialFileWriter extends AbstractBytes<Void> implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final Logger LOG = LoggerFactory.getLogger(SequentialFileWriter.class);
+
+    @NotNull
+    private final File file;
+    @NotNull
+    private final FileChannel channel;
+    private final boolean direct;
+    @NotNull
+    private final FileBufferBytesStore[] buffers;
+    @NotNull
+    private final ExecutorService writer;
+    private final long bufferSize;
+    private int current = 0;
+    private boolean closed = false;
+
+    private SequentialFileWriter(@NotNull File file, @NotNull FileChannel channel, boolean direct,
+                                 @NotNull FileBufferBytesStore[] buffers) throws IllegalStateException {
+        super((BytesStore) buffers[0], 0, MAX_CAPACITY);
+        this.file = file;
+        this.channel = channel;
+        this.direct = direct;
+        this.buffers = buffers;
+        this.bufferSize = buffers[0].size;
+        this.writer = FileBufferBytesStore.newExecutor("file-writer~" + file.getName());
+        readPosition = 0;
+    }
+
+    @NotNull
+    public static SequentialFileWriter open(@NotNull File file) throws IOException {
+        return open(file, DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * Create or truncate a file to write to.
+     *
+     * @param file       to write
+     * @param bufferSize of each of the two buffers, rounded up to the page size.
+     * @param direct     whether to try to bypass the page cache.
+     */
+    @NotNull
+    public static SequentialFileWriter open(@NotNull File file, int bufferSize, boolean direct) throws IOException {
+        if (bufferSize < 2 * FileBufferBytesStore.ALIGNMENT)
+            bufferSize = 2 * FileBufferBytesStore.ALIGNMENT;
+        FileChannel channel = direct ? FileBufferBytesStore.openDirect(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING) : null;
+        boolean direct2 = channel != null;
+        if (channel == null)
+            channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+        FileBufferBytesStore[] buffers = {
+                FileBufferBytesStore.allocate(bufferSize),
+                FileBufferBytesStore.allocate(bufferSize)};
+        buffers[0].window(0, 0, buffers[0].size);
+        buffers[0].zeroOut(0, buffers[0].size);
+        return new SequentialFileWriter(file, channel, direct2, buffers);
+    }
+
+    @NotNull
+    public File file() {
+        return file;
+    }
+
+    /**
+     * @return true if the file was opened for direct IO.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public long start() {
+        return 0L;
+    }
+
+    @Override
+    public long capacity() {
+        return MAX_CAPACITY;
+    }
+
+    @Override
+    public long realCapacity() {
+        return MAX_CAPACITY;
+    }
+
+    @Override
+    public boolean isElastic() {
+        return true;
+    }
+
+    @Override
+    public boolean isNative() {
+        return false;
+    }
+
+    @Override
+    public boolean sharedMemory() {
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException as the data may already have been written to the file.
+     */
+    @NotNull
+    @Override
+    public BytesStore<Bytes<Void>, Void> copy() {
+        throw new UnsupportedOperationException("Cannot copy a " + getClass().getSimpleName());
+    }
+
+    @Override
+    protected void writeCheckOffset(long offset, long adding)
+            throws BufferOverflowException, IllegalArgumentException, IORuntimeException {
+        FileBufferBytesStore buffer = buffers[current];
+        if (offset >= buffer.start() && offset + adding <= buffer.start() + bufferSize)
+            return;
+        if (closed)
+            throw new IllegalStateException("Closed " + file);
+        if (offset < buffer.start())
+            throw new IllegalArgumentException("Offset " + offset + " has already been written to " + file);
+        if (adding > bufferSize / 2)
+            throw new IllegalArgumentException("Cannot write " + adding + " bytes at once, the buffer size is " + bufferSize);
+        nextBuffer(offset);
+    }
+
+    /**
+     * @throws BufferUnderflowException if the data isn't in the current buffer.
+     */
+    @Override
+    protected void readCheckOffset(long offset, long adding, boolean given)
+            throws BufferUnderflowException, IORuntimeException {
+        FileBufferBytesStore buffer = buffers[current];
+        if (offset < buffer.start() || offset + adding > buffer.start() + bufferSize)
+            throw new BufferUnderflowException();
+    }
+
+    /**
+     * Write the current buffer up to the block containing offset in the background, and switch to
+     * the other buffer, copying across any data from that block on.
+     */
+    private void nextBuffer(long offset) {
+        FileBufferBytesStore buffer = buffers[current];
+        FileBufferBytesStore next = buffers[current ^ 1];
+        next.awaitPending();
+
+        long start = buffer.start();
+        long end = start + bufferSize;
+        long nextStart = FileBufferBytesStore.alignDown(offset);
+        next.window(nextStart, nextStart, nextStart + bufferSize);
+        // buffers are reused, so clear anything which isn't copied across in case of a writeSkip.
+        long copyEnd = Math.max(nextStart, end);
+        if (nextStart < end)
+            OS.memory().copyMemory(buffer.address(nextStart), next.address(nextStart), end - nextStart);
+        next.zeroOut(copyEnd, nextStart + bufferSize);
+
+        long writeEnd = Math.min(nextStart, end);
+        buffer.reserve();
+        buffer.pending(writer.submit(() -> {
+            try {
+                writeFully(buffer, start, writeEnd);
+            } finally {
+                buffer.release();
+            }
+            return null;
+        }));
+
+        next.reserve();
+        bytesStore.release();
+        bytesStore = (BytesStore) next;
+        current ^= 1;
+        // only the current buffer can be read.
+        readPosition = Math.max(readPosition, Math.min(nextStart, writePosition()));
+    }
+
+    private void writeFully(@NotNull FileBufferBytesStore buffer, long start, long end) throws IOException {
+        ByteBuffer bb = buffer.ioBuffer(start, Maths.toInt32(end - start));
+        long position = start;
+        while (bb.remaining() > 0)
+            position += channel.write(bb, position);
+    }
+
+    @NotNull
+    @Override
+    public Bytes<Void> write(byte[] bytes, int offset, int length)
+            throws BufferOverflowException, IllegalArgumentException, IORuntimeException {
+        int max = (int) (bufferSize / 2);
+        while (length > max) {
+            super.write(bytes, offset, max);
+            offset += max;
+            length -= max;
+        }
+        return super.write(bytes, offset, length);
+    }
+
+    @NotNull
+    @Override
+    public Bytes<Void> writeSome(@NotNull ByteBuffer buffer)
+            throws BufferOverflowException, IORuntimeException {
+        int max = (int) (bufferSize / 2);
+        while (buffer.remaining() > max) {
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + max);
+            super.writeSome(buffer);
+            buffer.limit(limit);
+        }
+        return super.writeSome(buffer);
+    }
+
+    /**
+     * Write everything up to the writePosition() to the file and close it.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            FileBufferBytesStore buffer = buffers[current];
+            buffers[current ^ 1].awaitPending();
+            long end = writePosition();
+            if (end > buffer.start()) {
+                // direct IO can only write whole blocks, the padding is truncated afterwards.
+                long end2 = direct ? FileBufferBytesStore.alignUp(end) : end;
+                writeFully(buffer, buffer.start(), end2);
+                if (end2 > end)
+                    channel.truncate(end);
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        } finally {
+            FileBufferBytesStore.shutdown(writer);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close " + file, e);
+            }
+            buffers[0].release();
+            buffers[1].release();
+            release();
+        }
+    }
+}
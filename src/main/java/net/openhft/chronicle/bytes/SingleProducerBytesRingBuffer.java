@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A lock free, single producer, single consumer ring buffer of length prefixed messages.
+ * <p></p>
+ * The header of each message is its length. The producer publishes messages by an ordered write
+ * of the write position and the consumer frees space by an ordered write of the read position, so
+ * no locks or CAS operations are required.
+ */
+public class SingleProducerBytesRingBuffer extends AbstractBytesRingBuffer {
+
+    // only accessed by the producer.
+    private final Claim claim = new Claim();
+    private long writePosition;
+    private long cachedReadPosition;
+    private long writeCount;
+    private long maxCopyTimeNs;
+
+    // only accessed by the consumer.
+    private long cachedWritePosition;
+
+    public SingleProducerBytesRingBuffer(@NotNull BytesStore bytesStore) {
+        super(bytesStore);
+        this.writePosition = bytesStore.readVolatileLong(WRITE_POSITION);
+        this.cachedReadPosition = readPosition;
+        this.cachedWritePosition = writePosition;
+    }
+
+    @Override
+    public void clear() {
+        readPosition = bytesStore.readVolatileLong(WRITE_POSITION);
+        cachedWritePosition = readPosition;
+        bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     */
+    @Override
+    public boolean offer(@NotNull BytesStore bytes0) {
+        long start = System.nanoTime();
+        long length = bytes0.readRemaining();
+        long offset = reserve(checkedRecordSize(length));
+        if (offset < 0)
+            return false;
+        bytesStore.write(offset + LENGTH_SIZE, bytes0, bytes0.readPosition(), length);
+        publish(offset, (int) length, start);
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message could never fit in this ring buffer.
+     * @throws IllegalStateException    if the previous claim was not committed.
+     */
+    @Nullable
+    @Override
+    public Bytes<Void> claim(int maxLength) {
+        if (claim.offset >= 0)
+            throw new IllegalStateException("The previous claim has not been committed");
+        long offset = reserve(checkedRecordSize(maxLength));
+        return offset < 0 ? null : claim.claim(bytesStore, offset, maxLength);
+    }
+
+    @Override
+    public void commit(int actualLength) throws IllegalStateException {
+        claim.checkCommit(actualLength);
+        publish(claim.offset, actualLength, claim.startNs);
+        claim.offset = -1;
+    }
+
+    /**
+     * Writes a padding record if the message won't fit before the end of the buffer.
+     *
+     * @return the offset in the BytesStore for the message header, or -1 if there is not enough space.
+     */
+    private long reserve(int recordSize) {
+        long writePosition = this.writePosition;
+        long offset = writePosition & mask;
+        long toEnd = capacity - offset;
+        long required = recordSize <= toEnd ? recordSize : toEnd + recordSize;
+        if (writePosition + required - cachedReadPosition > capacity) {
+            cachedReadPosition = bytesStore.readVolatileLong(READ_POSITION);
+            if (writePosition + required - cachedReadPosition > capacity)
+                return -1;
+        }
+
+        if (recordSize > toEnd) {
+            bytesStore.writeInt(DATA + offset, (int) -toEnd);
+            this.writePosition = writePosition + toEnd;
+            offset = 0;
+        }
+        return DATA + offset;
+    }
+
+    private void publish(long offset, int length, long startNs) {
+        bytesStore.writeInt(offset, length);
+        writePosition += recordSize(length);
+        bytesStore.writeOrderedLong(WRITE_POSITION, writePosition);
+
+        writeCount++;
+        long time = System.nanoTime() - startNs;
+        if (time > maxCopyTimeNs)
+            maxCopyTimeNs = time;
+    }
+
+    @Override
+    public boolean read(@NotNull BytesOut using) throws IllegalStateException {
+        long offset = nextMessageOffset();
+        if (offset < 0)
+            return false;
+        int length = bytesStore.readInt(offset);
+        if (length > using.writeRemaining())
+            throw new IllegalStateException("Not enough space to read a message of " + length + " bytes, writeRemaining: " + using.writeRemaining());
+        using.write(bytesStore, offset + LENGTH_SIZE, length);
+        readPosition += recordSize(length);
+        bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+        onRead(cachedWritePosition, 1);
+        return true;
+    }
+
+    @Override
+    public int drainTo(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+        int count = 0;
+        for (; count < maxMessages; count++) {
+            long offset = nextMessageOffset();
+            if (offset < 0)
+                break;
+            int length = bytesStore.readInt(offset);
+            handler.readMarshallable(view(offset + LENGTH_SIZE, length));
+            readPosition += recordSize(length);
+        }
+        if (count > 0) {
+            bytesStore.writeOrderedLong(READ_POSITION, readPosition);
+            onRead(cachedWritePosition, count);
+        }
+        return count;
+    }
+
+    /**
+     * Skips any padding record at the read position.
+     *
+     * @return the offset in the BytesStore of the next message, or -1 if there is none.
+     */
+    long nextMessageOffset() {
+        if (readPosition >= cachedWritePosition) {
+            cachedWritePosition = bytesStore.readVolatileLong(WRITE_POSITION);
+            if (readPosition >= cachedWritePosition)
+                return -1;
+        }
+        long offset = DATA + (readPosition & mask);
+        int length = bytesStore.readInt(offset);
+        if (length < 0) {
+            readPosition -= length;
+            if (readPosition >= cachedWritePosition)
+                return -1;
+            offset = DATA;
+        }
+        return offset;
+    }
+
+    @Override
+    public long getAndClearWriteCount() {
+        long count = writeCount;
+        writeCount = 0;
+        return count;
+    }
+
+    @Override
+    public long maxCopyTimeNs() {
+        long max = maxCopyTimeNs;
+        maxCopyTimeNs = 0;
+        return max;
+    }
+}
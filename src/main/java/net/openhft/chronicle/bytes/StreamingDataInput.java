@@ -27,6 +27,7 @@ import java.io.OutputStream;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -271,5 +272,17 @@ public interface StreamingDataInput<S extends StreamingDataInput<S>> extends Str
 
     void copyTo(OutputStream out) throws IOException;
 
+    /**
+     * Write the readable bytes to a channel and move the read position past the bytes written.
+     * Native memory is passed to the channel with a direct ByteBuffer view rather than copied.
+     *
+     * @param channel to write to
+     * @return the number of bytes written, which can be less than readRemaining() for a non
+     * blocking channel.
+     */
+    default long writeTo(@NotNull WritableByteChannel channel) throws IOException {
+        return BytesInternal.writeTo(this, channel);
+    }
+
     long copyTo(BytesStore to);
 }
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Position based access.  Once data has been read, the position() moves.
@@ -309,6 +310,18 @@ public interface StreamingDataOutput<S extends StreamingDataOutput<S>> extends S
         BytesInternal.copy(input, this);
     }
 
+    /**
+     * Read once from a channel into the space after the write position, growing elastic Bytes if
+     * there is no space left.  Native memory is passed to the channel with a direct ByteBuffer view
+     * rather than copied.
+     *
+     * @param channel to read from
+     * @return the number of bytes read, or -1 at the end of the stream.
+     */
+    default int readFrom(@NotNull ReadableByteChannel channel) throws IOException {
+        return BytesInternal.readFrom(this, channel);
+    }
+
     default void writePositionRemaining(long position, long length) {
         writeLimit(position + length);
         writePosition(position);
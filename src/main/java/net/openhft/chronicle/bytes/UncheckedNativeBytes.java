@@ -41,6 +41,8 @@ public class UncheckedNativeBytes<Underlying> implements Bytes<Underlying> {
     protected long writePosition;
     protected long writeLimit;
     private int lastDecimalPlaces = 0;
+    @Nullable
+    private ByteBuffer view;
 
     public UncheckedNativeBytes(@NotNull Bytes<Underlying> underlyingBytes)
             throws IllegalStateException {
@@ -743,6 +745,15 @@ public class UncheckedNativeBytes<Underlying> implements Bytes<Underlying> {
         return bytesStore;
     }
 
+    @NotNull
+    @Override
+    public ByteBuffer byteBufferView(long offset, int length) {
+        ByteBuffer bb = view;
+        if (bb == null)
+            view = bb = ByteBuffer.allocateDirect(0);
+        return NativeBytesStore.view(bb, bytesStore.address(offset), length);
+    }
+
     public int byteCheckSum() throws IORuntimeException {
         NativeBytesStore bytesStore = (NativeBytesStore) bytesStore();
         return bytesStore.byteCheckSum(readPosition(), readLimit());
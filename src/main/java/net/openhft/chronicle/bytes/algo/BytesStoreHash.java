@@ -32,7 +32,7 @@ public interface BytesStoreHash<B extends BytesStore> extends ToLongFunction<B>
     }
 
     static long hash(BytesStore b) {
-        return b instanceof Bytes && b.bytesStore() instanceof NativeBytesStore
+        return b instanceof Bytes && b.bytesStore() instanceof NativeBytesStore && b.isNative()
                 ? OptimisedBytesStoreHash.INSTANCE.applyAsLong((Bytes) b)
                 : VanillaBytesStoreHash.INSTANCE.applyAsLong(b);
     }
@@ -43,7 +43,7 @@ public interface BytesStoreHash<B extends BytesStore> extends ToLongFunction<B>
     }
 
     static long hash(Bytes b, int length) {
-        return b.bytesStore() instanceof NativeBytesStore
+        return b.bytesStore() instanceof NativeBytesStore && b.isNative()
                 ? OptimisedBytesStoreHash.INSTANCE.applyAsLong(b, length)
                 : VanillaBytesStoreHash.INSTANCE.applyAsLong(b, length);
     }
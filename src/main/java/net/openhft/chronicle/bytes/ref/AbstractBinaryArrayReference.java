@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * The layout shared by the binary array references, a 64-bit capacity, a 64-bit used count and
+ * then the values, padded to a multiple of 8 bytes so the next value stays aligned.
+ */
+abstract class AbstractBinaryArrayReference implements Byteable {
+    static final long CAPACITY = 0;
+    static final long USED = CAPACITY + Long.BYTES;
+    static final long VALUES = USED + Long.BYTES;
+    static final int MAX_TO_STRING = 128;
+    private final int shift;
+    BytesStore bytes;
+    long offset;
+    private long length = VALUES;
+    private long capacity;
+
+    AbstractBinaryArrayReference(int shift) {
+        this.shift = shift;
+    }
+
+    static void write(@NotNull Bytes bytes, long capacity, int shift, boolean zeroOut) throws BufferOverflowException {
+        assert (bytes.writePosition() & 0x7) == 0;
+
+        bytes.writeLong(capacity);
+        bytes.writeLong(0L); // used
+        long size = sizeInBytes(capacity, shift) - VALUES;
+        if (zeroOut) {
+            long start = bytes.writePosition();
+            bytes.zeroOut(start, start + size);
+        }
+        bytes.writeSkip(size);
+    }
+
+    static long peakLength(@NotNull BytesStore bytes, long offset, int shift) throws BufferUnderflowException {
+        final long capacity = bytes.readLong(offset);
+        assert capacity > 0 : "capacity too small";
+        return sizeInBytes(capacity, shift);
+    }
+
+    static long sizeInBytes(long capacity, int shift) {
+        return VALUES + (((capacity << shift) + 7) & ~7);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsed() {
+        return bytes.readVolatileLong(offset + USED);
+    }
+
+    public void setMaxUsed(long usedAtLeast) {
+        bytes.writeMaxLong(offset + USED, usedAtLeast);
+    }
+
+    public long sizeInBytes(long capacity) {
+        return sizeInBytes(capacity, shift);
+    }
+
+    long offsetOf(long index) {
+        return VALUES + offset + (index << shift);
+    }
+
+    /**
+     * Copy the first count values to an array with a single memory copy if the values are in
+     * native memory.
+     *
+     * @return false if the values are on the heap and need to be copied one at a time.
+     */
+    boolean copyNative(@NotNull Object array, long arrayBaseOffset, int count) {
+        return copyNative(bytes, offsetOf(0), array, arrayBaseOffset, (long) count << shift);
+    }
+
+    /**
+     * Copy length bytes from offset in bytes to an array with a single memory copy, shared by all
+     * the binary array references.
+     *
+     * @return false if the bytes are on the heap, or not all in this BytesStore, and need to be
+     * copied one value at a time.
+     */
+    static boolean copyNative(@NotNull BytesStore bytes, long offset, @NotNull Object array, long arrayBaseOffset, long length) {
+        // a Bytes such as MappedBytes may not have all the values in its current BytesStore
+        if (!bytes.isNative() || bytes.bytesStore() != bytes)
+            return false;
+        if (length > 0)
+            UNSAFE.copyMemory(null, bytes.address(offset), array, arrayBaseOffset, length);
+        return true;
+    }
+
+    @Override
+    public void bytesStore(@NotNull BytesStore bytes, long offset, long length) throws BufferUnderflowException, IllegalArgumentException {
+        if (length != peakLength(bytes, offset, shift))
+            throw new IllegalArgumentException(length + " != " + peakLength(bytes, offset, shift));
+        this.bytes = bytes.bytesStore();
+        this.offset = (offset + 7) & ~7;
+        this.length = length;
+        this.capacity = bytes.readLong(offset + CAPACITY);
+    }
+
+    public boolean isNull() {
+        return bytes == null;
+    }
+
+    public void reset() {
+        bytes = null;
+        offset = 0;
+        length = 0;
+        capacity = 0;
+    }
+
+    @Override
+    public BytesStore bytesStore() {
+        return bytes;
+    }
+
+    @Override
+    public long offset() {
+        return offset;
+    }
+
+    @Override
+    public long maxSize() {
+        return length;
+    }
+
+    abstract void appendValueAt(@NotNull StringBuilder sb, long index);
+
+    abstract boolean isZeroAt(long index);
+
+    @NotNull
+    public String toString() {
+        if (bytes == null)
+            return "not set";
+        StringBuilder sb = new StringBuilder();
+        sb.append("value: ");
+        String sep = "";
+        try {
+            int i, max = (int) Math.min(getCapacity(), MAX_TO_STRING);
+            for (i = 0; i < max; i++) {
+                if (isZeroAt(i))
+                    break;
+                sb.append(sep);
+                appendValueAt(sb, i);
+                sep = ", ";
+            }
+            if (i < getCapacity())
+                sb.append(" ...");
+        } catch (BufferUnderflowException e) {
+            sb.append(" ").append(e);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+
+/**
+ * This class acts a Binary array of 8-bit values, with the same header as BinaryLongArrayReference.
+ * <p></p>
+ * There is no atomic operation on a single byte, so compareAndSet swaps the aligned 32-bit word
+ * containing it.
+ */
+public class BinaryByteArrayReference extends AbstractBinaryArrayReference {
+    private static final int SHIFT = 0;
+
+    public BinaryByteArrayReference() {
+        super(SHIFT);
+    }
+
+    public static void write(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, true);
+    }
+
+    public static void lazyWrite(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, false);
+    }
+
+    public static long peakLength(@NotNull BytesStore bytes, long offset) throws BufferUnderflowException {
+        return peakLength(bytes, offset, SHIFT);
+    }
+
+    public byte getValueAt(long index) throws BufferUnderflowException {
+        return bytes.readByte(offsetOf(index));
+    }
+
+    public void setValueAt(long index, byte value) throws BufferOverflowException {
+        bytes.writeByte(offsetOf(index), value);
+    }
+
+    public byte getVolatileValueAt(long index) throws BufferUnderflowException {
+        return bytes.readVolatileByte(offsetOf(index));
+    }
+
+    public void setOrderedValueAt(long index, byte value) throws BufferOverflowException {
+        OS.memory().storeFence();
+        bytes.writeByte(offsetOf(index), value);
+    }
+
+    public boolean compareAndSet(long index, byte expected, byte value) throws BufferOverflowException {
+        long offset = offsetOf(index);
+        long wordOffset = offset & ~3;
+        int shift = (int) (offset & 3) << 3;
+        if (bytes.byteOrder() == ByteOrder.BIG_ENDIAN)
+            shift = 24 - shift;
+        int mask = 0xFF << shift;
+        for (; ; ) {
+            int word = bytes.readVolatileInt(wordOffset);
+            if ((byte) (word >>> shift) != expected)
+                return false;
+            if (bytes.compareAndSwapInt(wordOffset, word, (word & ~mask) | ((value & 0xFF) << shift)))
+                return true;
+        }
+    }
+
+    /**
+     * @param values to copy into, from index 0
+     * @return the number of values copied, the smaller of the capacity and values.length
+     */
+    public int copyTo(@NotNull byte[] values) {
+        int count = (int) Math.min(getCapacity(), values.length);
+        if (!copyNative(values, Unsafe.ARRAY_BYTE_BASE_OFFSET, count))
+            for (int i = 0; i < count; i++)
+                values[i] = getValueAt(i);
+        return count;
+    }
+
+    @Override
+    void appendValueAt(@NotNull StringBuilder sb, long index) {
+        sb.append(getValueAt(index));
+    }
+
+    @Override
+    boolean isZeroAt(long index) {
+        return getValueAt(index) == 0;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+
+/**
+ * This class acts a Binary array of 64-bit floating point values, with the same header as BinaryLongArrayReference.
+ */
+public class BinaryDoubleArrayReference extends AbstractBinaryArrayReference {
+    private static final int SHIFT = 3;
+
+    public BinaryDoubleArrayReference() {
+        super(SHIFT);
+    }
+
+    public static void write(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, true);
+    }
+
+    public static void lazyWrite(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, false);
+    }
+
+    public static long peakLength(@NotNull BytesStore bytes, long offset) throws BufferUnderflowException {
+        return peakLength(bytes, offset, SHIFT);
+    }
+
+    public double getValueAt(long index) throws BufferUnderflowException {
+        return bytes.readDouble(offsetOf(index));
+    }
+
+    public void setValueAt(long index, double value) throws BufferOverflowException {
+        bytes.writeDouble(offsetOf(index), value);
+    }
+
+    public double getVolatileValueAt(long index) throws BufferUnderflowException {
+        return bytes.readVolatileDouble(offsetOf(index));
+    }
+
+    public void setOrderedValueAt(long index, double value) throws BufferOverflowException {
+        bytes.writeOrderedDouble(offsetOf(index), value);
+    }
+
+    public boolean compareAndSet(long index, double expected, double value) throws BufferOverflowException {
+        return bytes.compareAndSwapDouble(offsetOf(index), expected, value);
+    }
+
+    /**
+     * @param values to copy into, from index 0
+     * @return the number of values copied, the smaller of the capacity and values.length
+     */
+    public int copyTo(@NotNull double[] values) {
+        int count = (int) Math.min(getCapacity(), values.length);
+        if (!copyNative(values, Unsafe.ARRAY_DOUBLE_BASE_OFFSET, count))
+            for (int i = 0; i < count; i++)
+                values[i] = getValueAt(i);
+        return count;
+    }
+
+    @Override
+    void appendValueAt(@NotNull StringBuilder sb, long index) {
+        sb.append(getValueAt(index));
+    }
+
+    @Override
+    boolean isZeroAt(long index) {
+        return getValueAt(index) == 0.0;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.values.IntValue;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+
+/**
+ * This class acts a Binary array of 32-bit values, with the same header as BinaryLongArrayReference.
+ */
+public class BinaryIntArrayReference extends AbstractBinaryArrayReference {
+    private static final int SHIFT = 2;
+
+    public BinaryIntArrayReference() {
+        super(SHIFT);
+    }
+
+    public static void write(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, true);
+    }
+
+    public static void lazyWrite(@NotNull Bytes bytes, long capacity) throws BufferOverflowException {
+        write(bytes, capacity, SHIFT, false);
+    }
+
+    public static long peakLength(@NotNull BytesStore bytes, long offset) throws BufferUnderflowException {
+        return peakLength(bytes, offset, SHIFT);
+    }
+
+    public int getValueAt(long index) throws BufferUnderflowException {
+        return bytes.readInt(offsetOf(index));
+    }
+
+    public void setValueAt(long index, int value) throws BufferOverflowException {
+        bytes.writeInt(offsetOf(index), value);
+    }
+
+    public int getVolatileValueAt(long index) throws BufferUnderflowException {
+        return bytes.readVolatileInt(offsetOf(index));
+    }
+
+    public void setOrderedValueAt(long index, int value) throws BufferOverflowException {
+        bytes.writeOrderedInt(offsetOf(index), value);
+    }
+
+    public boolean compareAndSet(long index, int expected, int value) throws BufferOverflowException {
+        return bytes.compareAndSwapInt(offsetOf(index), expected, value);
+    }
+
+    public void bindValueAt(int index, @NotNull IntValue value) {
+        ((BinaryIntReference) value).bytesStore(bytes, offsetOf(index), 4);
+    }
+
+    /**
+     * @param values to copy into, from index 0
+     * @return the number of values copied, the smaller of the capacity and values.length
+     */
+    public int copyTo(@NotNull int[] values) {
+        int count = (int) Math.min(getCapacity(), values.length);
+        if (!copyNative(values, Unsafe.ARRAY_INT_BASE_OFFSET, count))
+            for (int i = 0; i < count; i++)
+                values[i] = getValueAt(i);
+        return count;
+    }
+
+    @Override
+    void appendValueAt(@NotNull StringBuilder sb, long index) {
+        sb.append(getValueAt(index));
+    }
+
+    @Override
+    boolean isZeroAt(long index) {
+        return getValueAt(index) == 0;
+    }
+}
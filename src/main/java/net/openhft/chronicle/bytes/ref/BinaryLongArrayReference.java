@@ -19,6 +19,7 @@ import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.values.LongValue;
 import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
 
 import java.lang.ref.WeakReference;
 import java.nio.BufferOverflowException;
@@ -121,6 +122,18 @@ public class BinaryLongArrayReference implements ByteableLongArrayValues {
         bytes.writeOrderedLong(VALUES + offset + (index << 3), value);
     }
 
+    /**
+     * @param values to copy into, from index 0
+     * @return the number of values copied, the smaller of the capacity and values.length
+     */
+    public int copyTo(@NotNull long[] values) {
+        int count = (int) Math.min(getCapacity(), values.length);
+        if (!AbstractBinaryArrayReference.copyNative(bytes, VALUES + offset, values, Unsafe.ARRAY_LONG_BASE_OFFSET, (long) count << 3))
+            for (int i = 0; i < count; i++)
+                values[i] = getValueAt(i);
+        return count;
+    }
+
     @Override
     public void bytesStore(@NotNull BytesStore bytes, long offset, long length) throws BufferUnderflowException, IllegalArgumentException {
         if (length != peakLength(bytes, offset))
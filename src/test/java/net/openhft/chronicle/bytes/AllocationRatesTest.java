@@ -56,8 +56,9 @@ public class AllocationRatesTest {
             long timeHBB = timeHeapByteBufferAllocations();
             long timeDBB = timeDirectByteBufferAllocations();
             long timeDS = timeDirectStoreAllocations();
-            System.out.printf("buffers %d KB took an average of %,d ns for heap ByteBuffer, %,d ns for direct ByteBuffer and %,d for DirectStore%n",
-                    BUFFER_SIZE / 1024, timeHBB / ALLOCATIONS, timeDBB / ALLOCATIONS, timeDS / ALLOCATIONS);
+            long timePS = timePooledStoreAllocations();
+            System.out.printf("buffers %d KB took an average of %,d ns for heap ByteBuffer, %,d ns for direct ByteBuffer, %,d for DirectStore and %,d for pooled DirectStore%n",
+                    BUFFER_SIZE / 1024, timeHBB / ALLOCATIONS, timeDBB / ALLOCATIONS, timeDS / ALLOCATIONS, timePS / ALLOCATIONS);
         }
     }
 
@@ -94,4 +95,19 @@ public class AllocationRatesTest {
         }
         return System.nanoTime() - start;
     }
+
+    private long timePooledStoreAllocations() {
+        NativeBytesStorePool pool = NativeBytesStorePool.global();
+        long start = System.nanoTime();
+        for (int i = 0; i < ALLOCATIONS; i += BATCH) {
+            NativeBytesStore[] ds = new NativeBytesStore[BATCH];
+            for (int j = 0; j < BATCH; j++)
+                ds[j] = pool.acquire(BUFFER_SIZE);
+            for (int j = 0; j < BATCH; j++) {
+                ds[j].release();
+                assertEquals(0, ds[j].refCount());
+            }
+        }
+        return System.nanoTime() - start;
+    }
 }
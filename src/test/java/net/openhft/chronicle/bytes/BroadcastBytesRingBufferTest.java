@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BroadcastBytesRingBufferTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void writeAndReadMany() throws IOException {
+        File file = new File(OS.TARGET, "writeAndReadMany-" + System.nanoTime() + ".rb");
+        file.deleteOnExit();
+        Bytes<Void> in = Bytes.allocateDirect(64);
+        Bytes<Void> out = Bytes.allocateDirect(64);
+        try (BroadcastBytesRingBuffer writer = BroadcastBytesRingBuffer.of(file, 1024, 2);
+             BroadcastBytesRingBuffer other = BroadcastBytesRingBuffer.of(file, 1024, 2)) {
+            BroadcastBytesRingBuffer.Reader reader0 = other.reader(0);
+            BroadcastBytesRingBuffer.Reader reader1 = other.reader(1);
+            assertTrue(reader0.isEmpty());
+            for (int i = 0; i < 64; i++) {
+                in.clear().writeLong(i).writeInt(i);
+                assertTrue(writer.offer(in));
+
+                out.clear();
+                assertTrue(reader0.read(out));
+                assertEquals(i, out.readLong());
+                assertEquals(i, out.readInt());
+                assertFalse(reader0.read(out));
+            }
+            assertEquals(reader0.readPosition(), writer.writePosition());
+            // reader1 is a full ring behind and holding back the writer
+            assertEquals(0, writer.slowestReadPosition());
+            assertFalse(writer.offer(in));
+
+            reader1.close();
+            assertEquals(writer.writePosition(), writer.slowestReadPosition());
+            assertTrue(writer.offer(in));
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    @Test(expected = ReaderLappedException.class)
+    public void readerLapped() throws IOException {
+        File file = new File(OS.TARGET, "readerLapped-" + System.nanoTime() + ".rb");
+        file.deleteOnExit();
+        Bytes<Void> in = Bytes.allocateDirect(64);
+        Bytes<Void> out = Bytes.allocateDirect(64);
+        try (BroadcastBytesRingBuffer writer = BroadcastBytesRingBuffer.of(file, 256, 1)) {
+            BroadcastBytesRingBuffer.Reader reader = writer.reader(0);
+            for (int i = 0; i < 20; i++)
+                writer.write(in.clear().writeLong(i).writeLong(i));
+            assertTrue(reader.lag() > writer.capacity());
+            try {
+                reader.read(out);
+            } finally {
+                assertEquals(0, out.readRemaining());
+                reader.toEnd();
+                assertFalse(reader.read(out));
+                in.release();
+                out.release();
+            }
+        }
+    }
+
+    @Test
+    public void messageLargerThanAnIntRejected() throws IOException {
+        File file = new File(OS.TARGET, "messageLargerThanAnIntRejected-" + System.nanoTime() + ".rb");
+        file.deleteOnExit();
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(64);
+        try (BroadcastBytesRingBuffer writer = BroadcastBytesRingBuffer.of(file, 1024, 1)) {
+            // only the length is looked at, the contents are never read.
+            BytesStore huge = BytesStore.wrap(nbs.address(0), (4L << 30) + 8);
+            try {
+                writer.offer(huge);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                writer.write(huge);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            assertEquals(0, writer.writePosition());
+        } finally {
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void capacityLimitedToAnIntHeader() throws IOException {
+        File file = new File(OS.TARGET, "capacityLimitedToAnIntHeader-" + System.nanoTime() + ".rb");
+        file.deleteOnExit();
+        assertEquals(BroadcastBytesRingBuffer.sizeFor(1 << 30, 1) - (1 << 30),
+                BroadcastBytesRingBuffer.sizeFor(8, 1) - 8);
+        try {
+            BroadcastBytesRingBuffer.sizeFor((1 << 30) + 1, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            BroadcastBytesRingBuffer.of(file, 2L << 30, 1).close();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+
+import static org.junit.Assert.assertEquals;
+
+public class BytesChannelTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void testWriteToReadFrom() throws IOException {
+        Pipe pipe = Pipe.open();
+        Bytes<Void> out = Bytes.allocateElasticDirect();
+        Bytes<Void> in = Bytes.allocateElasticDirect();
+        Bytes<byte[]> heap = Bytes.wrapForWrite(new byte[64]);
+        try {
+            out.append("Hello World ").append(12345);
+            assertEquals(17, out.writeTo(pipe.sink()));
+            assertEquals(0, out.readRemaining());
+
+            assertEquals(17, in.readFrom(pipe.source()));
+            assertEquals("Hello World 12345", in.toString());
+
+            // not native so copied through a buffer.
+            heap.append("on heap");
+            assertEquals(7, heap.writeTo(pipe.sink()));
+            assertEquals(7, in.readFrom(pipe.source()));
+            assertEquals("Hello World 12345on heap", in.toString());
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+            out.release();
+            in.release();
+            heap.release();
+        }
+    }
+
+    @Test
+    public void testGatheringScattering() throws IOException {
+        File file = File.createTempFile("channel", ".dat");
+        file.deleteOnExit();
+        Bytes<Void> a = Bytes.allocateElasticDirect();
+        Bytes<byte[]> b = Bytes.wrapForWrite(new byte[64]);
+        Bytes<Void> c = Bytes.allocateDirect(8);
+        Bytes<Void> d = Bytes.allocateDirect(16);
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            a.writeLong(1).writeLong(2);
+            b.writeInt(3);
+            c.writeLong(4);
+            assertEquals(28, BytesUtil.writeTo(channel, a, b, c));
+            assertEquals(0, a.readRemaining() + b.readRemaining() + c.readRemaining());
+
+            channel.position(0);
+            c.clear();
+            assertEquals(24, BytesUtil.readFrom(channel, c, d));
+            assertEquals(1, c.readLong());
+            assertEquals(2, d.readLong());
+            assertEquals(3, d.readInt());
+            assertEquals(4, d.readInt());
+        } finally {
+            a.release();
+            b.release();
+            c.release();
+            d.release();
+            file.delete();
+        }
+    }
+}
@@ -7,10 +7,14 @@ import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Peter on 20/04/2016.
@@ -71,6 +75,125 @@ public class BytesMarshallableTest {
         assertEquals(mn2.toString(), mn4.toString());
     }
 
+    @Test
+    public void serializeInheritedAndFinalFields() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        MyExtended me1 = new MyExtended(123456789L, "Hello", true, (byte) 1, (short) 2, '3', 4, 5.5f, 6, 7.7);
+        me1.writeMarshallable(bytes);
+
+        MyExtended me2 = new MyExtended(0L, null, false, (byte) 0, (short) 0, '0', 0, 0f, 0, 0);
+        me2.readMarshallable(bytes);
+
+        assertEquals(me1.toString(), me2.toString());
+        assertEquals(0, bytes.readRemaining());
+    }
+
+    @Test
+    public void serializeCollections() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        MyCollections mc1 = new MyCollections();
+        mc1.side = TimeUnit.SECONDS;
+        mc1.quantity = -12345L;
+        mc1.count = 7;
+        mc1.prices = new double[]{1.5, 2.25, -3};
+        mc1.names = new String[]{"a", null, "c"};
+        mc1.list = new ArrayList<>(Arrays.asList(1, 2, null, -4));
+        mc1.map = new TreeMap<>();
+        mc1.map.put("one", new MyByteable(true, (byte) 1, (short) 2, '3', 4, 5.5f, 6, 7.7));
+        mc1.map.put("two", null);
+        mc1.writeMarshallable(bytes);
+        MyCollections mc2 = new MyCollections();
+        mc2.writeMarshallable(bytes);
+        long length = bytes.readRemaining();
+
+        MyCollections mc3 = new MyCollections();
+        MyCollections mc4 = new MyCollections();
+        mc3.readMarshallable(bytes);
+        mc4.readMarshallable(bytes);
+        assertEquals(mc1.toString(), mc3.toString());
+        assertEquals(mc2.toString(), mc4.toString());
+        assertEquals(90, length);
+    }
+
+    @Test
+    public void serializeScalarsCompactly() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        MyScalars ms = new MyScalars("Hello", BigInteger.ONE, BigDecimal.TEN, LocalDate.of(2016, 4, 20), LocalTime.of(12, 0), LocalDateTime.of(2016, 4, 20, 12, 0), ZonedDateTime.of(2016, 4, 20, 12, 0, 0, 0, ZoneId.of("UTC")), new UUID(1, 2));
+        ms.writeMarshallable(bytes);
+        assertEquals(54, bytes.readRemaining());
+    }
+
+    @Test
+    public void readReusesExistingObjects() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        MyReusable mr1 = new MyReusable();
+        mr1.name.append("Hello");
+        mr1.prices = new double[]{1.5, 2.5};
+        mr1.items.add(new MyByteable(true, (byte) 1, (short) 2, '3', 4, 5.5f, 6, 7.7));
+        mr1.items.add(new MyByteable(false, (byte) 11, (short) 22, 'T', 44, 5.555f, 66, 77.77));
+        mr1.map.put("one", 1);
+        mr1.nested = new MyByteable(true, (byte) 1, (short) 2, '3', 4, 5.5f, 6, 7.7);
+        mr1.writeMarshallable(bytes);
+
+        MyReusable mr2 = new MyReusable();
+        mr2.readMarshallable(bytes);
+        assertEquals(mr1.toString(), mr2.toString());
+
+        StringBuilder name = mr2.name;
+        double[] prices = mr2.prices;
+        List<MyByteable> items = mr2.items;
+        MyByteable item0 = items.get(0);
+        Map<String, Integer> map = mr2.map;
+        MyByteable nested = mr2.nested;
+
+        mr1.name.setLength(0);
+        mr1.name.append("World");
+        mr1.prices[1] = -2;
+        mr1.items.remove(1);
+        mr1.items.get(0).i = 12345;
+        mr1.map.put("two", 2);
+        mr1.nested.l = 987654321L;
+        mr1.writeMarshallable(bytes);
+        mr2.readMarshallable(bytes);
+        assertEquals(mr1.toString(), mr2.toString());
+
+        assertSame(name, mr2.name);
+        assertSame(prices, mr2.prices);
+        assertSame(items, mr2.items);
+        assertSame(item0, mr2.items.get(0));
+        assertSame(map, mr2.map);
+        assertSame(nested, mr2.nested);
+    }
+
+    @Test
+    public void serializeArraysBetweenHeapAndNative() {
+        MyArrays ma = new MyArrays();
+        ma.flags = new boolean[]{true, false, true};
+        ma.ints = new int[]{1, -2, 3};
+        ma.doubles = new double[]{1.5, -2.5};
+
+        Bytes<byte[]> heap = Bytes.wrapForWrite(new byte[128]);
+        ma.writeMarshallable(heap);
+        Bytes<Void> direct = Bytes.allocateElasticDirect();
+        try {
+            direct.write(heap);
+            MyArrays ma2 = new MyArrays();
+            ma2.readMarshallable(direct);
+            assertEquals(ma.toString(), ma2.toString());
+            assertTrue(Arrays.equals(ma.flags, ma2.flags));
+
+            direct.clear();
+            ma.writeMarshallable(direct);
+            Bytes<byte[]> heap2 = Bytes.wrapForRead(direct.toByteArray());
+            MyArrays ma3 = new MyArrays();
+            ma3.readMarshallable(heap2);
+            assertEquals(ma.toString(), ma3.toString());
+            assertTrue(Arrays.equals(ma.flags, ma3.flags));
+        } finally {
+            direct.release();
+        }
+    }
+
     static class MyByteable implements BytesMarshallable {
         boolean flag;
         byte b;
@@ -110,6 +233,83 @@ public class BytesMarshallableTest {
         }
     }
 
+    static class MyExtended extends MyByteable {
+        private final long id;
+        private String name;
+
+        public MyExtended(long id, String name, boolean flag, byte b, short s, char c, int i, float f, long l, double d) {
+            super(flag, b, s, c, i, f, l, d);
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return "MyExtended{" +
+                    "id=" + id +
+                    ", name='" + name + '\'' +
+                    ", " + super.toString() +
+                    '}';
+        }
+    }
+
+    static class MyCollections implements BytesMarshallable {
+        TimeUnit side;
+        Long quantity;
+        Integer count;
+        double[] prices;
+        String[] names;
+        List<Integer> list;
+        SortedMap<String, MyByteable> map;
+
+        @Override
+        public String toString() {
+            return "MyCollections{" +
+                    "side=" + side +
+                    ", quantity=" + quantity +
+                    ", count=" + count +
+                    ", prices=" + Arrays.toString(prices) +
+                    ", names=" + Arrays.toString(names) +
+                    ", list=" + list +
+                    ", map=" + map +
+                    '}';
+        }
+    }
+
+    static class MyArrays implements BytesMarshallable {
+        boolean[] flags;
+        int[] ints;
+        double[] doubles;
+
+        @Override
+        public String toString() {
+            return "MyArrays{" +
+                    "flags=" + Arrays.toString(flags) +
+                    ", ints=" + Arrays.toString(ints) +
+                    ", doubles=" + Arrays.toString(doubles) +
+                    '}';
+        }
+    }
+
+    static class MyReusable implements BytesMarshallable {
+        StringBuilder name = new StringBuilder();
+        double[] prices;
+        List<MyByteable> items = new ArrayList<>();
+        Map<String, Integer> map = new LinkedHashMap<>();
+        MyByteable nested;
+
+        @Override
+        public String toString() {
+            return "MyReusable{" +
+                    "name=" + name +
+                    ", prices=" + Arrays.toString(prices) +
+                    ", items=" + items +
+                    ", map=" + map +
+                    ", nested=" + nested +
+                    '}';
+        }
+    }
+
     static class MyScalars implements BytesMarshallable {
         String s;
         BigInteger bi;
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BytesRingBufferTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void offerAndRead() throws InterruptedException {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(1024));
+        Bytes<Void> out = Bytes.allocateDirect(128);
+        Bytes<byte[]> in = Bytes.wrapForRead("Hello World".getBytes());
+        try {
+            BytesRingBuffer ring = BytesRingBuffer.newInstance(nbs);
+            assertEquals(1024, ring.capacity());
+            assertTrue(ring.isEmpty());
+            assertFalse(ring.read(out));
+
+            assertTrue(ring.offer(in));
+            assertEquals(16, ring.readRemaining());
+            assertTrue(ring.read(out));
+            assertEquals("Hello World", out.toString());
+            assertTrue(ring.isEmpty());
+
+            assertEquals(1, ring.getAndClearWriteCount());
+            assertEquals(1, ring.getAndClearReadCount());
+            assertEquals(1024, ring.minNumberOfWriteBytesRemaining());
+            assertEquals(Long.MAX_VALUE, ring.minNumberOfWriteBytesRemaining());
+        } finally {
+            out.release();
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void capacityLimitedToAnIntHeader() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(1024));
+        try {
+            // only the header is read, so a small store can pretend to be larger.
+            // the positions are non zero so the multi producer ring buffer doesn't zero the data.
+            nbs.writeLong(AbstractBytesRingBuffer.WRITE_POSITION, 8);
+            nbs.writeLong(AbstractBytesRingBuffer.READ_POSITION, 8);
+            BytesStore large = BytesStore.wrap(nbs.address(0), AbstractBytesRingBuffer.DATA + (1L << 30));
+            assertEquals(1L << 30, new SingleProducerBytesRingBuffer(large).capacity());
+            assertEquals(1L << 30, new MultiProducerBytesRingBuffer(large).capacity());
+            BytesStore tooLarge = BytesStore.wrap(nbs.address(0), AbstractBytesRingBuffer.DATA + (4L << 30));
+            try {
+                new SingleProducerBytesRingBuffer(tooLarge);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // the padding record to the end of the buffer wouldn't fit in an int.
+            }
+            try {
+                new MultiProducerBytesRingBuffer(tooLarge);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // the padding record to the end of the buffer wouldn't fit in an int.
+            }
+            try {
+                BytesRingBuffer.sizeFor(2L << 30);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // too large.
+            }
+        } finally {
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void wrapsAroundWhenFull() throws InterruptedException {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        Bytes<Void> out = Bytes.allocateDirect(128);
+        Bytes<Void> in = Bytes.allocateDirect(128);
+        try {
+            BytesRingBuffer ring = new SingleProducerBytesRingBuffer(nbs);
+            for (int i = 0; i < 1000; i++) {
+                in.clear();
+                for (int j = 0; j <= i % 50; j++)
+                    in.writeByte((byte) (i + j));
+                int count = 0;
+                while (ring.offer(in))
+                    count++;
+                assertTrue(count > 0);
+
+                for (int k = 0; k < count; k++) {
+                    out.clear();
+                    assertTrue(ring.read(out));
+                    assertEquals(in.readRemaining(), out.readRemaining());
+                    assertTrue(in.contentEquals(out));
+                }
+                assertFalse(ring.read(out));
+            }
+        } finally {
+            in.release();
+            out.release();
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void producerConsumer() throws InterruptedException {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(4 << 10));
+        try {
+            SingleProducerBytesRingBuffer ring = new SingleProducerBytesRingBuffer(nbs);
+            int messages = 200_000;
+            Thread producer = new Thread(() -> {
+                Bytes<Void> in = Bytes.allocateDirect(8);
+                try {
+                    for (int i = 0; i < messages; i++) {
+                        in.clear().writeLong(i);
+                        while (!ring.offer(in))
+                            Thread.yield();
+                    }
+                } finally {
+                    in.release();
+                }
+            }, "producer");
+            producer.start();
+
+            Bytes<Void> out = Bytes.allocateDirect(8);
+            try {
+                for (int i = 0; i < messages; i++) {
+                    out.clear();
+                    while (!ring.read(out))
+                        Thread.yield();
+                    assertEquals(i, out.readLong());
+                }
+            } finally {
+                out.release();
+            }
+            producer.join();
+        } finally {
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void multiProducerWrapsAround() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        Bytes<Void> out = Bytes.allocateDirect(128);
+        Bytes<Void> in = Bytes.allocateDirect(128);
+        try {
+            MultiProducerBytesRingBuffer ring = new MultiProducerBytesRingBuffer(nbs);
+            for (int i = 0; i < 1000; i++) {
+                in.clear();
+                for (int j = 0; j <= i % 50; j++)
+                    in.writeByte((byte) (i + j));
+                int count = 0;
+                while (ring.offer(in))
+                    count++;
+                assertTrue(count > 0);
+
+                for (int k = 0; k < count; k++) {
+                    out.clear();
+                    assertTrue(ring.read(out));
+                    assertTrue(in.contentEquals(out));
+                }
+                assertFalse(ring.read(out));
+            }
+        } finally {
+            in.release();
+            out.release();
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void multiProducerZerosNewStore() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        Bytes<Void> out = Bytes.allocateDirect(128);
+        Bytes<Void> in = Bytes.allocateDirect(128);
+        try {
+            // left over data from a previous use of the store.
+            for (long i = AbstractBytesRingBuffer.DATA; i < nbs.capacity(); i++)
+                nbs.writeByte(i, (byte) -1);
+            MultiProducerBytesRingBuffer ring = new MultiProducerBytesRingBuffer(nbs);
+            assertTrue(ring.isEmpty());
+            assertFalse(ring.read(out));
+            for (int i = 0; i < 100; i++) {
+                assertTrue(ring.offer(in.clear().writeLong(i).writeInt(i)));
+                assertTrue(ring.read(out.clear()));
+                assertEquals(i, out.readLong());
+                assertEquals(i, out.readInt());
+            }
+            assertFalse(ring.read(out.clear()));
+        } finally {
+            in.release();
+            out.release();
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void multipleProducers() throws InterruptedException {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(4 << 10));
+        try {
+            MultiProducerBytesRingBuffer ring = new MultiProducerBytesRingBuffer(nbs);
+            int producers = 4, messages = 50_000;
+            Thread[] threads = new Thread[producers];
+            for (int p = 0; p < producers; p++) {
+                int id = p;
+                threads[p] = new Thread(() -> {
+                    Bytes<Void> in = Bytes.allocateDirect(16);
+                    try {
+                        for (int i = 0; i < messages; i++) {
+                            in.clear().writeInt(id).writeLong(i);
+                            while (!ring.offer(in))
+                                Thread.yield();
+                        }
+                    } finally {
+                        in.release();
+                    }
+                }, "producer-" + p);
+                threads[p].start();
+            }
+
+            long[] expected = new long[producers];
+            Bytes<Void> out = Bytes.allocateDirect(16);
+            try {
+                for (int i = 0; i < producers * messages; i++) {
+                    out.clear();
+                    while (!ring.read(out))
+                        Thread.yield();
+                    assertEquals(12, out.readRemaining());
+                    int id = out.readInt();
+                    assertEquals(expected[id]++, out.readLong());
+                }
+            } finally {
+                out.release();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            assertTrue(ring.isEmpty());
+            assertEquals(producers * messages, ring.getAndClearWriteCount());
+        } finally {
+            nbs.release();
+        }
+    }
+
+    @Test
+    public void drainTo() throws InterruptedException {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        NativeBytesStore<Void> nbs2 = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        NativeBytesStore<Void> nbs3 = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        try {
+            drainTo(new SingleProducerBytesRingBuffer(nbs));
+            drainTo(new MultiProducerBytesRingBuffer(nbs2));
+            // the default implementation
+            drainTo(new DelegatingRingBuffer(new SingleProducerBytesRingBuffer(nbs3)));
+        } finally {
+            nbs.release();
+            nbs2.release();
+            nbs3.release();
+        }
+    }
+
+    private void drainTo(BytesRingBuffer ring) throws InterruptedException {
+        Bytes<Void> in = Bytes.allocateDirect(16);
+        try {
+            long[] next = {0};
+            for (int i = 0; i < 100; i++) {
+                // 14 messages of 16 bytes fill the ring with a padding record in most laps.
+                for (int j = 0; j < 14; j++)
+                    assertTrue(ring.offer(in.clear().writeLong(i * 14 + j)));
+                assertEquals(5, ring.drainTo(b -> assertEquals(next[0]++, b.readLong()), 5));
+                assertEquals(9, ring.drainTo(b -> assertEquals(next[0]++, b.readLong()), 20));
+                assertEquals(0, ring.drainTo(b -> fail(), 20));
+                assertTrue(ring.isEmpty());
+            }
+            assertEquals(1400, ring.getAndClearReadCount());
+        } finally {
+            in.release();
+        }
+    }
+
+    @Test
+    public void claimAndCommit() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        NativeBytesStore<Void> nbs2 = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        try {
+            claimAndCommit(new SingleProducerBytesRingBuffer(nbs));
+            claimAndCommit(new MultiProducerBytesRingBuffer(nbs2));
+        } finally {
+            nbs.release();
+            nbs2.release();
+        }
+    }
+
+    @Test
+    public void claimAndCommitAreOptional() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(BytesRingBuffer.sizeFor(256));
+        try {
+            BytesRingBuffer ring = new DelegatingRingBuffer(new SingleProducerBytesRingBuffer(nbs));
+            try {
+                ring.claim(40);
+                fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+            try {
+                ring.commit(0);
+                fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+            assertTrue(ring.isEmpty());
+        } finally {
+            nbs.release();
+        }
+    }
+
+    private void claimAndCommit(BytesRingBuffer ring) {
+        Bytes<Void> out = Bytes.allocateDirect(64);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Bytes<Void> bytes = ring.claim(40);
+                assertNotNull(bytes);
+                assertEquals(40, bytes.writeRemaining());
+                bytes.writeLong(i);
+                if (i % 3 == 0)
+                    bytes.writeInt(i);
+                ring.commit((int) bytes.writePosition());
+
+                out.clear();
+                assertTrue(ring.read(out));
+                assertEquals(i, out.readLong());
+                if (i % 3 == 0)
+                    assertEquals(i, out.readInt());
+                assertEquals(0, out.readRemaining());
+                assertFalse(ring.read(out));
+            }
+            while (ring.claim(40) != null)
+                ring.commit(0);
+            assertEquals(0, ring.readRemaining() % 8);
+        } finally {
+            out.release();
+        }
+    }
+
+    // only implements the abstract methods of BytesRingBuffer.
+    static class DelegatingRingBuffer implements BytesRingBuffer {
+        private final BytesRingBuffer ring;
+
+        DelegatingRingBuffer(BytesRingBuffer ring) {
+            this.ring = ring;
+        }
+
+        @Override
+        public void clear() {
+            ring.clear();
+        }
+
+        @Override
+        public boolean offer(@NotNull BytesStore bytes0) throws InterruptedException {
+            return ring.offer(bytes0);
+        }
+
+        @Override
+        public boolean read(@NotNull BytesOut using) throws IllegalStateException {
+            return ring.read(using);
+        }
+
+        @Override
+        public long readRemaining() {
+            return ring.readRemaining();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ring.isEmpty();
+        }
+
+        @Override
+        public long minNumberOfWriteBytesRemaining() {
+            return ring.minNumberOfWriteBytesRemaining();
+        }
+
+        @Override
+        public long capacity() {
+            return ring.capacity();
+        }
+
+        @Override
+        public long getAndClearReadCount() {
+            return ring.getAndClearReadCount();
+        }
+
+        @Override
+        public long getAndClearWriteCount() {
+            return ring.getAndClearWriteCount();
+        }
+
+        @Override
+        public long maxCopyTimeNs() {
+            return ring.maxCopyTimeNs();
+        }
+    }
+}
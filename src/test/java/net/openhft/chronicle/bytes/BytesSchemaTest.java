@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BytesSchemaTest {
+    @Test
+    public void testHeaderWrittenOnce() {
+        Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        long first;
+        try (BytesSchemaWriter writer = new BytesSchemaWriter()) {
+            writer.write(new OrderV1(1, "first", 1.5, Arrays.asList("a", "b")), bytes);
+            first = bytes.writePosition();
+            writer.write(new OrderV1(2, "second", 2.5, null), bytes);
+        }
+        assertTrue(bytes.writePosition() - first < first / 2);
+
+        BytesSchemaReader reader = new BytesSchemaReader();
+        OrderV1 o1 = reader.read(bytes, null);
+        assertEquals("OrderV1{id=1, name='first', price=1.5, tags=[a, b]}", o1.toString());
+        OrderV1 o2 = reader.read(bytes, o1);
+        assertSame(o1, o2);
+        assertEquals("OrderV1{id=2, name='second', price=2.5, tags=null}", o2.toString());
+        assertEquals(0, bytes.readRemaining());
+    }
+
+    @Test
+    public void testReadNewerVersion() {
+        Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        try (BytesSchemaWriter writer = new BytesSchemaWriter()) {
+            for (int i = 0; i < 3; i++)
+                writer.write(new OrderV1(i, "order-" + i, i * 1.5, Arrays.asList("t" + i)), bytes);
+        }
+
+        // fields reordered, price and tags removed, quantity added and id changed type.
+        BytesSchemaReader reader = new BytesSchemaReader();
+        OrderV2 o = new OrderV2();
+        for (int i = 0; i < 3; i++) {
+            o.quantity = -1;
+            reader.read(bytes, o);
+            assertEquals("order-" + i, o.name);
+            assertEquals(-1, o.quantity);
+            assertEquals(0, o.id);
+        }
+        assertEquals(0, bytes.readRemaining());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissedHeader() {
+        Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        try (BytesSchemaWriter writer = new BytesSchemaWriter()) {
+            writer.write(new OrderV1(1, "first", 1.5, null), bytes);
+            bytes.readPosition(bytes.writePosition());
+            writer.write(new OrderV1(2, "second", 2.5, null), bytes);
+        }
+        new BytesSchemaReader().read(bytes, new OrderV1());
+    }
+
+    static class OrderV1 implements BytesMarshallable {
+        int id;
+        String name;
+        double price;
+        List<String> tags;
+
+        OrderV1() {
+        }
+
+        OrderV1(int id, String name, double price, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.tags = tags;
+        }
+
+        @Override
+        public String toString() {
+            return "OrderV1{" +
+                    "id=" + id +
+                    ", name='" + name + '\'' +
+                    ", price=" + price +
+                    ", tags=" + tags +
+                    '}';
+        }
+    }
+
+    static class OrderV2 implements BytesMarshallable {
+        long quantity;
+        String name;
+        long id;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ChainedBytesTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void testStreamingAcrossSegments() {
+        ChainedBytes bytes = ChainedBytes.chainedBytes(64);
+        try {
+            assertEquals(64, bytes.segmentSize());
+            for (int i = 0; i < 100; i++) {
+                bytes.writeByte((byte) i);
+                bytes.writeShort((short) i);
+                bytes.writeInt(i);
+                bytes.writeLong(i * 1000000007L);
+                bytes.writeDouble(i / 3.0);
+                bytes.writeUtf8("hello-" + i);
+                bytes.writeStopBit(i * 131L);
+            }
+            assertTrue(bytes.segmentCount() > 40);
+            assertEquals(bytes.realCapacity(), bytes.segmentCount() * 64L);
+
+            for (int i = 0; i < 100; i++) {
+                assertEquals((byte) i, bytes.readByte());
+                assertEquals((short) i, bytes.readShort());
+                assertEquals(i, bytes.readInt());
+                assertEquals(i * 1000000007L, bytes.readLong());
+                assertEquals(i / 3.0, bytes.readDouble(), 0.0);
+                assertEquals("hello-" + i, bytes.readUtf8());
+                assertEquals(i * 131L, bytes.readStopBit());
+            }
+            assertEquals(0, bytes.readRemaining());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testBulkCopy() {
+        ChainedBytes bytes = ChainedBytes.chainedBytes(64);
+        Bytes<Void> direct = Bytes.allocateElasticDirect();
+        try {
+            byte[] data = new byte[1000];
+            for (int i = 0; i < data.length; i++)
+                data[i] = (byte) (i * 7);
+            bytes.writeInt(-1);
+            bytes.write(data);
+            direct.write(data);
+            bytes.write((BytesStore) direct, 0L, 500L);
+
+            assertEquals(1504, bytes.readRemaining());
+            assertEquals(-1, bytes.readInt());
+            byte[] data2 = new byte[1000];
+            assertEquals(1000, bytes.read(data2));
+            assertArrayEquals(data, data2);
+            for (int i = 0; i < 500; i++)
+                assertEquals(data[i], bytes.readByte());
+
+            // unaligned primitives across a boundary are split, aligned ones never are.
+            bytes.writeLong(61, 0x0102030405060708L);
+            assertEquals(0x0102030405060708L, bytes.readLong(61));
+            assertEquals(0x08, bytes.readByte(61));
+            assertTrue(bytes.compareAndSwapLong(64, bytes.readLong(64), 1L));
+            try {
+                bytes.readVolatileLong(61);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            direct.release();
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testGatheringWrite() throws IOException {
+        File file = File.createTempFile("chained", ".dat");
+        file.deleteOnExit();
+        ChainedBytes bytes = ChainedBytes.chainedBytes(128);
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            for (int i = 0; i < 1000; i++)
+                bytes.writeInt(i);
+            bytes.readSkip(12);
+            assertEquals(3988, bytes.writeTo(channel));
+            assertEquals(0, bytes.readRemaining());
+        } finally {
+            bytes.release();
+        }
+        Bytes<byte[]> read = Bytes.wrapForRead(Files.readAllBytes(file.toPath()));
+        assertEquals(3988, read.readRemaining());
+        for (int i = 3; i < 1000; i++)
+            assertEquals(i, read.readInt());
+        file.delete();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FixedLayoutTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void testLayout() {
+        FixedLayout<MyOrder> layout = FixedLayout.of(MyOrder.class);
+        assertSame(layout, FixedLayout.of(MyOrder.class));
+        assertEquals(8 + 8 + 4 + 1, layout.size());
+        assertEquals(0, layout.offsetOf("id"));
+        assertEquals(16, layout.offsetOf("quantity"));
+        assertEquals(20, layout.offsetOf("buy"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotPrimitive() {
+        FixedLayout.of(BytesMarshallableTest.MyScalars.class);
+    }
+
+    @Test
+    public void testFieldHandles() {
+        FixedLayout<MyOrder> layout = FixedLayout.of(MyOrder.class);
+        int records = 1000;
+        Bytes<Void> bytes = Bytes.allocateElasticDirect();
+        try {
+            // records written with writeMarshallable can be read in place.
+            for (int i = 0; i < records; i++)
+                new MyOrder(i, 100 + i * 0.5, i * 10, i % 2 == 0).writeMarshallable(bytes);
+            assertEquals(records * layout.size(), bytes.readRemaining());
+
+            FixedLayout.LongField id = layout.longField("id");
+            FixedLayout.DoubleField price = layout.doubleField("price");
+            FixedLayout.IntField quantity = layout.intField("quantity");
+            FixedLayout.BooleanField buy = layout.booleanField("buy");
+            double total = 0;
+            long quantities = 0;
+            for (int i = 0; i < records; i++) {
+                long record = (long) i * layout.size();
+                assertEquals(i, id.getVolatile(bytes, record));
+                assertEquals(i % 2 == 0, buy.get(bytes, record));
+                total += price.get(bytes, record);
+                quantities += quantity.get(bytes, record);
+                assertTrue(quantity.compareAndSwap(bytes, record, i * 10, i * 10 + 1));
+            }
+            assertEquals(records * 100 + records * (records - 1) / 4.0, total, 0.0);
+            assertEquals(10 * records * (records - 1) / 2, quantities);
+            assertEquals("MyOrder{id=999, price=599.5, quantity=9991, buy=false}",
+                    layout.toString(bytes, 999L * layout.size()));
+
+            MyOrder mo = new MyOrder();
+            layout.readFrom(bytes, 3 * layout.size(), mo);
+            assertEquals(31, mo.quantity);
+            mo.price = 1.25;
+            layout.writeTo(mo, bytes, 3 * layout.size());
+            assertEquals(1.25, price.get(bytes, 3 * layout.size()), 0.0);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testFieldHandlesDontAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+
+        FixedLayout<MyOrder> layout = FixedLayout.of(MyOrder.class);
+        FixedLayout.LongField id = layout.longField("id");
+        FixedLayout.DoubleField price = layout.doubleField("price");
+        FixedLayout.IntField quantity = layout.intField("quantity");
+        int records = 10_000;
+        Bytes<Void> bytes = Bytes.allocateDirect((long) records * layout.size());
+        try {
+            for (int i = 0; i < records; i++)
+                new MyOrder(i, i, i, true).writeMarshallable(bytes);
+
+            // the cost of measuring, as getThreadAllocatedBytes may allocate itself.
+            long overhead = -threadMXBean.getThreadAllocatedBytes(threadId) + threadMXBean.getThreadAllocatedBytes(threadId);
+            long used = 0;
+            for (int round = 0; round < 5; round++) {
+                long before = threadMXBean.getThreadAllocatedBytes(threadId);
+                double total = scan(layout, bytes, records, id, price, quantity);
+                used = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+                assertEquals(records * (records - 1) / 2.0, total, 0.0);
+            }
+            assertTrue("allocated " + used + " bytes", used <= overhead);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    private static double scan(FixedLayout<MyOrder> layout, BytesStore bytes, int records,
+                               FixedLayout.LongField id, FixedLayout.DoubleField price, FixedLayout.IntField quantity) {
+        double total = 0;
+        for (int i = 0; i < records; i++) {
+            long record = (long) i * layout.size();
+            price.set(bytes, record, id.get(bytes, record));
+            total += price.get(bytes, record) + (quantity.get(bytes, record) - id.get(bytes, record));
+        }
+        return total;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFieldHandleMismatch() {
+        FixedLayout.of(MyOrder.class).longField("quantity");
+    }
+
+    static class MyOrder implements BytesMarshallable {
+        long id;
+        double price;
+        int quantity;
+        boolean buy;
+
+        MyOrder() {
+        }
+
+        MyOrder(long id, double price, int quantity, boolean buy) {
+            this.id = id;
+            this.price = price;
+            this.quantity = quantity;
+            this.buy = buy;
+        }
+    }
+}
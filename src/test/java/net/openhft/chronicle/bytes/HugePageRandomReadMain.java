@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import java.util.Random;
+
+/**
+ * Compares random reads from a regular store with one backed by huge pages, where the difference
+ * is mostly TLB misses.  Run with, e.g. a 4 GB store
+ * <pre>
+ * java -Xmx1g HugePageRandomReadMain 4096
+ * </pre>
+ * and compare with perf stat -e dTLB-load-misses.  Without explicit huge pages, transparent huge
+ * pages need /sys/kernel/mm/transparent_hugepage/enabled set to always.
+ */
+public class HugePageRandomReadMain {
+    public static void main(String[] args) {
+        long capacity = (args.length > 0 ? Long.parseLong(args[0]) : 1024) << 20;
+        int reads = 20_000_000;
+        for (int run = 0; run < 3; run++) {
+            NativeBytesStore<Void> regular = NativeBytesStore.nativeStoreWithFixedCapacity(capacity);
+            try {
+                System.out.printf("regular    %.1f ns/read%n", randomReads(regular, reads));
+            } finally {
+                regular.release();
+            }
+            NativeBytesStore<Void> huge = NativeBytesStore.hugePageStoreWithFixedCapacity(capacity);
+            try {
+                System.out.printf("huge pages %.1f ns/read%n", randomReads(huge, reads));
+            } finally {
+                huge.release();
+            }
+        }
+    }
+
+    private static double randomReads(NativeBytesStore<Void> store, int reads) {
+        long words = store.capacity() / 8;
+        Random random = new Random(1);
+        long[] offsets = new long[1 << 20];
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = (long) (random.nextDouble() * words) * 8;
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++)
+            sum += store.readLong(offsets[i & (offsets.length - 1)]);
+        long time = System.nanoTime() - start;
+        if (sum != 0)
+            throw new AssertionError();
+        return (double) time / reads;
+    }
+}
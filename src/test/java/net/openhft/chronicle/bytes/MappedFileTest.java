@@ -24,11 +24,19 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.BufferUnderflowException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MappedFileTest {
 
@@ -100,4 +108,283 @@ public class MappedFileTest {
         assertEquals(0, mf.refCount());
         assertEquals("refCount: 0, 0, 0", mf.referenceCounts());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPreMapping() throws IOException, InterruptedException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testPreMapping-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        int chunkSize = 64 << 10;
+        Map<Integer, String> mappedBy = new ConcurrentHashMap<>();
+        MappedBytes bytes = MappedBytes.mappedBytes(tmp, chunkSize);
+        try {
+            bytes.mappedFile().setPreMapFraction(0.5);
+            bytes.setNewChunkListener((filename, chunk, delayMicros) ->
+                    mappedBy.put(chunk, Thread.currentThread().getName()));
+            for (int chunk = 1; chunk <= 3; chunk++) {
+                // pass the middle of the previous chunk.
+                while (bytes.writePosition() <= (chunk - 0.5) * chunkSize)
+                    bytes.writeLong(bytes.writePosition());
+                for (int i = 0; i < 100 && !mappedBy.containsKey(chunk); i++)
+                    Thread.sleep(10);
+                assertTrue(mappedBy.get(chunk), mappedBy.get(chunk).startsWith("mapped-file~"));
+            }
+            while (bytes.writePosition() < 3 * chunkSize)
+                bytes.writeLong(bytes.writePosition());
+            for (long i = 0; i < 3 * chunkSize; i += 8)
+                assertEquals(i, bytes.readLong(i));
+        } finally {
+            bytes.release();
+        }
+        assertEquals(0, bytes.mappedFile().refCount());
+    }
+
+    @Test
+    public void testConcurrentAcquire() throws IOException, InterruptedException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testConcurrentAcquire-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        int chunkSize = OS.isWindows() ? 64 << 10 : 4 << 10;
+        int chunks = 40, threads = 4;
+        MappedFile mf = MappedFile.mappedFile(tmp, chunkSize, 0);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] readers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            readers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10_000; i++) {
+                        int chunk = (i * 7 + id) % chunks;
+                        MappedBytesStore mbs = mf.acquireByteStore((long) chunk * chunkSize);
+                        assertEquals((long) chunk * chunkSize, mbs.start());
+                        mbs.release();
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }, "reader-" + t);
+            readers[t].start();
+        }
+        for (Thread reader : readers)
+            reader.join();
+        if (error.get() != null)
+            throw new AssertionError(error.get());
+
+        String counts = mf.referenceCounts();
+        assertEquals(chunks, counts.split(", ").length - 1);
+        mf.close();
+        // chunks only held weakly which were collected are released when their Cleaner runs.
+        for (int i = 0; i < 100 && mf.refCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, mf.refCount());
+    }
+
+    @Test
+    public void testAdvise() throws IOException, InterruptedException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testAdvise-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        int chunkSize = 64 << 10;
+        Map<Integer, String> mappedBy = new ConcurrentHashMap<>();
+        MappedFile mf = MappedFile.mappedFile(tmp, chunkSize);
+        try {
+            mf.setPreTouch(true);
+            mf.setNewChunkListener((filename, chunk, delayMicros) ->
+                    mappedBy.put(chunk, Thread.currentThread().getName()));
+            MappedBytesStore mbs = mf.acquireByteStore(0);
+            mbs.writeLong(0, 1);
+            mbs.release();
+
+            assertFalse(mf.advise(0, 3 * chunkSize, MappedAccessHint.NORMAL));
+            assertFalse(mf.advise(0, 3 * chunkSize, MappedAccessHint.RANDOM));
+            assertTrue(mf.advise(chunkSize / 2, 3 * chunkSize, MappedAccessHint.WILL_NEED));
+            for (int i = 0; i < 100 && mappedBy.size() < 3; i++)
+                Thread.sleep(10);
+            assertEquals(Thread.currentThread().getName(), mappedBy.get(0));
+            assertTrue(mappedBy.get(1), mappedBy.get(1).startsWith("mapped-file~"));
+            assertTrue(mappedBy.get(2), mappedBy.get(2).startsWith("mapped-file~"));
+
+            // chunks still being pre-touched are in use, so retry until they are released.
+            for (int i = 0; i < 100 && mf.unmapCount() < 2; i++) {
+                assertTrue(mf.advise(chunkSize / 2, 3 * chunkSize, MappedAccessHint.DONT_NEED));
+                Thread.sleep(10);
+            }
+            // only chunks 1 and 2 are entirely inside the range.
+            assertEquals(2, mf.unmapCount());
+            assertEquals(3, mf.mapCount());
+            mbs = mf.acquireByteStore(0);
+            assertEquals(1, mbs.readLong(0));
+            mbs.release();
+            assertEquals(3, mf.mapCount());
+        } finally {
+            mf.close();
+        }
+        assertFalse(mf.advise(0, chunkSize, MappedAccessHint.WILL_NEED));
+    }
+
+    @Test
+    public void testGrowthPolicy() throws IOException {
+        new File(OS.TARGET).mkdir();
+        int chunkSize = 64 << 10;
+        int overlapSize = OS.pageSize();
+
+        File tmp = new File(OS.TARGET, "testGrowthPolicy-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        MappedFile mf = MappedFile.mappedFile(tmp, chunkSize, overlapSize);
+        try {
+            mf.setGrowthPolicy(MappedFileGrowthPolicy.preallocate(3));
+            mf.acquireByteStore(0).release();
+            assertEquals(4 * chunkSize + overlapSize, mf.actualSize());
+            MappedBytesStore mbs = mf.acquireByteStore(3 * chunkSize);
+            assertEquals(4 * chunkSize + overlapSize, mf.actualSize());
+            assertEquals(0L, mbs.readLong(3 * chunkSize));
+            mbs.release();
+            mf.acquireByteStore(4 * chunkSize).release();
+            assertEquals(8 * chunkSize + overlapSize, mf.actualSize());
+        } finally {
+            mf.close();
+        }
+
+        File tmp2 = new File(OS.TARGET, "testGrowthPolicy2-" + System.nanoTime() + ".bin");
+        tmp2.deleteOnExit();
+        MappedFile mf2 = MappedFile.mappedFile(tmp2, chunkSize, overlapSize);
+        try {
+            mf2.setGrowthPolicy(MappedFileGrowthPolicy.geometric(2));
+            mf2.acquireByteStore(0).release();
+            assertEquals(chunkSize + overlapSize, mf2.actualSize());
+            mf2.acquireByteStore(chunkSize).release();
+            assertEquals(3 * chunkSize + overlapSize, mf2.actualSize());
+            mf2.acquireByteStore(3 * chunkSize).release();
+            assertEquals(7 * chunkSize + overlapSize, mf2.actualSize());
+        } finally {
+            mf2.close();
+        }
+    }
+
+    @Test
+    public void testReadOnly() throws IOException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testReadOnly-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) i;
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(data);
+        }
+        assertTrue(tmp.setWritable(false));
+
+        MappedBytes bytes = MappedBytes.readOnly(tmp, 64 << 10);
+        try {
+            assertTrue(bytes.isReadOnly());
+            assertEquals(100_000, bytes.readRemaining());
+            for (int i = 0; i < data.length; i++)
+                assertEquals(data[i], bytes.readByte());
+            // spans the end of the first chunk.
+            assertEquals(0x03020100_FFFEFDFCL, bytes.readLong(65532));
+            try {
+                bytes.readLong(data.length - 4);
+                fail();
+            } catch (BufferUnderflowException e) {
+                // expected
+            }
+            try {
+                bytes.writeLong(0, 1L);
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            assertTrue(tmp.setWritable(true));
+            try (FileOutputStream fos = new FileOutputStream(tmp, true)) {
+                fos.write(data);
+            }
+            bytes.readLimit(2 * data.length);
+            for (int i = 0; i < data.length; i++)
+                assertEquals(data[i], bytes.readByte());
+            assertEquals(0, bytes.readRemaining());
+        } finally {
+            bytes.release();
+        }
+        assertEquals(2 * data.length, tmp.length());
+    }
+
+    @Test
+    public void testMappedBudget() throws IOException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testMappedBudget-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        int chunkSize = 64 << 10;
+        int overlapSize = OS.pageSize();
+        long mappedSize = chunkSize + overlapSize;
+        MappedFile mf = MappedFile.mappedFile(tmp, chunkSize, overlapSize);
+        try {
+            mf.setMappedBudget(3 * mappedSize);
+            MappedBytesStore first = mf.acquireByteStore(0);
+            first.writeLong(0, 123L);
+            for (int i = 1; i < 10; i++) {
+                MappedBytesStore mbs = mf.acquireByteStore(i * chunkSize);
+                mbs.writeLong(i * chunkSize, i);
+                mbs.release();
+                assertTrue(mf.mappedBytes() <= 3 * mappedSize);
+            }
+            assertEquals(10, mf.mapCount());
+            assertEquals(7, mf.unmapCount());
+            // still reserved so not unmapped.
+            assertEquals(123L, first.readLong(0));
+            first.release();
+
+            mf.setMappedBudget(mappedSize);
+            assertEquals(mappedSize, mf.mappedBytes());
+            assertEquals(9, mf.unmapCount());
+
+            for (int i = 0; i < 10; i++) {
+                MappedBytesStore mbs = mf.acquireByteStore(i * chunkSize);
+                assertEquals(i == 0 ? 123L : i, mbs.readLong(i * chunkSize));
+                mbs.release();
+            }
+            assertEquals(20, mf.mapCount());
+        } finally {
+            mf.close();
+        }
+        assertEquals(0, mf.mappedBytes());
+        assertEquals(mf.mapCount(), mf.unmapCount());
+    }
+
+    @Test
+    public void testSync() throws IOException, InterruptedException {
+        new File(OS.TARGET).mkdir();
+        File tmp = new File(OS.TARGET, "testSync-" + System.nanoTime() + ".bin");
+        tmp.deleteOnExit();
+        int chunkSize = 64 << 10;
+        MappedBytes bytes = MappedBytes.mappedBytes(tmp, chunkSize);
+        try {
+            for (int i = 0; i < 40_000; i++)
+                bytes.writeLong(i);
+            // spans several chunks, only the last of which is still held.
+            bytes.sync(1000, bytes.writePosition());
+            bytes.sync(bytes.writePosition() - 100, bytes.writePosition());
+
+            MappedSyncer syncer = new MappedSyncer(bytes.mappedFile(), 10, TimeUnit.SECONDS, 4096);
+            try {
+                assertEquals(0, syncer.durablePosition().getVolatileValue());
+                syncer.written(bytes.writePosition());
+                // over the threshold so synced before the interval.
+                for (int i = 0; i < 100 && syncer.durablePosition().getVolatileValue() == 0; i++)
+                    Thread.sleep(10);
+                assertEquals(bytes.writePosition(), syncer.durablePosition().getVolatileValue());
+
+                bytes.writeLong(-1);
+                syncer.written(bytes.writePosition());
+            } finally {
+                syncer.close();
+            }
+            // synced on close.
+            assertEquals(bytes.writePosition(), syncer.durablePosition().getVolatileValue());
+        } finally {
+            bytes.release();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NativeBytesStorePoolTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void sizeClass() {
+        assertEquals(0, NativeBytesStorePool.sizeClass(1));
+        assertEquals(0, NativeBytesStorePool.sizeClass(64));
+        assertEquals(1, NativeBytesStorePool.sizeClass(65));
+        assertEquals(11, NativeBytesStorePool.sizeClass(128 << 10));
+    }
+
+    @Test
+    public void reusesReleasedStores() {
+        NativeBytesStorePool pool = new NativeBytesStorePool(64 << 10, 256 << 10);
+        try {
+            NativeBytesStore<Void> nbs = pool.acquire(1000);
+            assertEquals(1000, nbs.capacity());
+            long address = nbs.address(0);
+            nbs.writeLong(992, 123L);
+            nbs.release();
+            assertEquals(0, nbs.refCount());
+
+            NativeBytesStore<Void> nbs2 = pool.acquire(1024);
+            assertEquals(address, nbs2.address(0));
+            nbs2.release();
+            long slabBytes = pool.slabBytes();
+
+            Bytes<Void> bytes = pool.allocateDirect(1024);
+            assertEquals(1024, bytes.writeRemaining());
+            bytes.writeUtf8("Hello World");
+            assertEquals("Hello World", bytes.readUtf8());
+            bytes.release();
+
+            // more stores than a thread caches, all distinct.
+            Set<Long> addresses = new HashSet<>();
+            NativeBytesStore[] stores = new NativeBytesStore[100];
+            for (int i = 0; i < stores.length; i++) {
+                stores[i] = pool.acquire(1024);
+                assertTrue(addresses.add(stores[i].address(0)));
+            }
+            for (NativeBytesStore store : stores)
+                store.release();
+            for (int i = 0; i < stores.length; i++)
+                pool.acquire(1024).release();
+            assertEquals(Math.max(slabBytes, 100 * 1024), pool.slabBytes());
+
+            // too large to pool.
+            NativeBytesStore<Void> large = pool.acquire(1 << 20);
+            assertFalse(large instanceof PooledNativeBytesStore);
+            large.release();
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void releasedOnAnotherThread() throws InterruptedException {
+        NativeBytesStorePool pool = new NativeBytesStorePool(64 << 10, 256 << 10);
+        try {
+            NativeBytesStore[] stores = new NativeBytesStore[1000];
+            for (int i = 0; i < stores.length; i++)
+                stores[i] = pool.acquire(4096);
+            Thread t = new Thread(() -> {
+                for (NativeBytesStore store : stores)
+                    store.release();
+            }, "releaser");
+            t.start();
+            t.join();
+            long slabBytes = pool.slabBytes();
+            // most of the blocks went back to the shared arena.
+            for (int i = 0; i < stores.length - 16; i++)
+                stores[i] = pool.acquire(4096);
+            assertEquals(slabBytes, pool.slabBytes());
+            for (int i = 0; i < stores.length - 16; i++)
+                stores[i].release();
+        } finally {
+            pool.close();
+        }
+    }
+}
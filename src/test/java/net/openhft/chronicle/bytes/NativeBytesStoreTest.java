@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.bytes;
 
+import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.threads.ThreadDump;
 import org.junit.After;
@@ -63,6 +64,23 @@ public class NativeBytesStoreTest {
         assertNotSame(bb, bb2);
     }
 
+    @Test
+    public void testHugePageStore() {
+        long capacity = 3 << 20;
+        NativeBytesStore<Void> nbs = NativeBytesStore.hugePageStoreWithFixedCapacity(capacity);
+        try {
+            assertEquals(capacity, nbs.capacity());
+            assertEquals(0, nbs.address(0) % HugePages.HUGE_PAGE_SIZE);
+            assertEquals(0L, nbs.readLong(capacity - 8));
+            for (long i = 0; i < capacity; i += 4096)
+                nbs.writeLong(i, i);
+            for (long i = 0; i < capacity; i += 4096)
+                assertEquals(i, nbs.readLong(i));
+        } finally {
+            nbs.release();
+        }
+    }
+
     @Test
     public void testAppendUtf8() {
         String hi = "Hello World";
@@ -72,6 +90,24 @@ public class NativeBytesStoreTest {
         assertEquals(hi, nbs.toString());
     }
 
+    @Test
+    public void testReleasedHere() {
+        NativeBytesStore<Void> nbs = NativeBytesStore.nativeStoreWithFixedCapacity(64);
+        NativeBytesStore<Void> nbs2 = NativeBytesStore.nativeStoreWithFixedCapacity(64);
+        nbs.release();
+        nbs2.release();
+        assertNotNull(nbs.releasedHere);
+        assertNotNull(nbs2.releasedHere);
+        // each store records where it was released only in debug mode.
+        assertEquals(Jvm.isDebug(), nbs.releasedHere != nbs2.releasedHere);
+        try {
+            nbs.checkReleased();
+            fail();
+        } catch (InternalError expected) {
+            assertSame(nbs.releasedHere, expected.getCause());
+        }
+    }
+
     @Test
     public void perfCheckSum() {
         NativeBytesStore[] nbs = {
@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.bytes;
 
+import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.threads.ThreadDump;
 import org.junit.After;
 import org.junit.Before;
@@ -23,8 +24,13 @@ import org.junit.Test;
 
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -74,4 +80,128 @@ public class NativeBytesTest {
         Bytes b = Bytes.allocateElasticDirect();
         b.appendUtf8(new char[] {'Δ'}, 0, 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGrowthPolicies() {
+        long ps = OS.pageSize();
+        NativeBytes<Void> doubling = Bytes.allocateElasticDirect(ps);
+        NativeBytes<Void> fixed = Bytes.allocateElasticDirect(ps);
+        try {
+            doubling.growthPolicy(NativeBytesGrowthPolicy.doubling());
+            fixed.growthPolicy(NativeBytesGrowthPolicy.fixedIncrement(4 * ps));
+            doubling.writeSkip(ps + 1);
+            fixed.writeSkip(ps + 1);
+            assertEquals(3 * ps, doubling.realCapacity());
+            assertEquals(6 * ps, fixed.realCapacity());
+        } finally {
+            doubling.release();
+            fixed.release();
+        }
+    }
+
+    @Test
+    public void testReallocatingGrowth() {
+        NativeBytes<Void> bytes = Bytes.allocateElasticDirect(64);
+        try {
+            bytes.growthPolicy(NativeBytesGrowthPolicy.reallocating(NativeBytesGrowthPolicy.doubling()));
+            for (long i = 0; i < 1 << 20; i++)
+                bytes.writeLong(i);
+            for (long i = 0; i < 1 << 20; i++)
+                assertEquals(i, bytes.readLong());
+            assertEquals(1, bytes.bytesStore().refCount());
+        } finally {
+            bytes.release();
+        }
+
+        // when shared the store is copied, not reallocated.
+        NativeBytes<Void> bytes2 = Bytes.allocateElasticDirect(64);
+        BytesStore store = bytes2.bytesStore();
+        store.reserve();
+        try {
+            bytes2.growthPolicy(NativeBytesGrowthPolicy.reallocating(NativeBytesGrowthPolicy.doubling()));
+            bytes2.writeLong(0, 123L);
+            bytes2.writeSkip(1 << 16);
+            assertEquals(123L, store.readLong(0));
+            assertEquals(123L, bytes2.readLong(0));
+            assertEquals(1, store.refCount());
+        } finally {
+            store.release();
+            bytes2.release();
+        }
+    }
+
+    @Test
+    public void testReallocateOnlyWholeBlocks() {
+        NativeBytesStore<Void> store = NativeBytesStore.nativeStoreWithFixedCapacity(64);
+        store.writeLong(0, 123L);
+        long used = OS.memory().nativeMemoryUsed();
+        NativeBytesStore<Void> store2 = store.reallocate(1 << 20);
+        assertNotNull(store2);
+        assertEquals(123L, store2.readLong(0));
+        assertEquals(used + (1 << 20) - 64, OS.memory().nativeMemoryUsed());
+        store2.release();
+        assertEquals(used - 64, OS.memory().nativeMemoryUsed());
+
+        // an aligned store within a larger block can't be reallocated.
+        long rawAddress = OS.memory().allocate(128);
+        NativeBytesStore<Void> aligned = new NativeBytesStore<>(rawAddress + 64, 64,
+                new NativeBytesStore.Deallocator(rawAddress, 128), false);
+        try {
+            assertNull(aligned.reallocate(1 << 20));
+            assertEquals(1, aligned.refCount());
+        } finally {
+            aligned.release();
+        }
+    }
+
+    @Test
+    public void testSizeHint() {
+        BytesSizeHint hint = new BytesSizeHint(256, 1 << 20);
+        NativeBytes<Void> bytes = hint.nativeBytes();
+        assertEquals(256, bytes.realCapacity());
+        bytes.writeSkip(10_000);
+        hint.record(bytes);
+        bytes.release();
+
+        assertEquals(10_000, hint.capacity());
+        NativeBytes<Void> bytes2 = hint.nativeBytes();
+        assertEquals(10_000, bytes2.realCapacity());
+        bytes2.release();
+
+        hint.record(1L << 30);
+        assertEquals(1 << 20, hint.capacity());
+    }
+
+    @Test
+    public void testByteBufferView() {
+        Bytes<Void> bytes = Bytes.allocateElasticDirect(64);
+        try {
+            bytes.appendUtf8("Hello World");
+            ByteBuffer bb = bytes.byteBufferView();
+            assertEquals(0, bb.position());
+            assertEquals(11, bb.limit());
+            assertTrue(bb.isDirect());
+
+            CRC32 crc = new CRC32();
+            crc.update(bb);
+            CRC32 crc2 = new CRC32();
+            crc2.update("Hello World".getBytes());
+            assertEquals(crc2.getValue(), crc.getValue());
+
+            // the same ByteBuffer is repointed and writes through to the Bytes.
+            ByteBuffer bb2 = bytes.byteBufferView(6, 5);
+            assertSame(bb, bb2);
+            bb2.put((byte) 'w');
+            assertEquals("Hello world", bytes.toString());
+
+            NativeBytesStore<Void> store = NativeBytesStore.nativeStoreWithFixedCapacity(16);
+            try {
+                assertEquals(16, store.byteBufferView(0, 16).remaining());
+            } finally {
+                store.release();
+            }
+        } finally {
+            bytes.release();
+        }
+    }
+}
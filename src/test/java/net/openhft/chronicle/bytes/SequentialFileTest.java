@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.BytesMarshallableTest.MyByteable;
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+
+import static org.junit.Assert.*;
+
+public class SequentialFileTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = File.createTempFile("sequential", ".dat");
+        file.deleteOnExit();
+        byte[] bytes = new byte[50_000];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) i;
+
+        long length;
+        try (SequentialFileWriter writer = SequentialFileWriter.open(file, 16 << 10, true)) {
+            for (int i = 0; i < 10_000; i++) {
+                new MyByteable(i % 2 == 0, (byte) i, (short) i, (char) i, i, i, i, i).writeMarshallable(writer);
+                writer.writeUtf8("item-" + i);
+            }
+            writer.write(bytes);
+            writer.writeLong(-1L);
+            length = writer.writePosition();
+        }
+        assertEquals(length, file.length());
+
+        try (SequentialFileReader reader = SequentialFileReader.open(file, 16 << 10, true)) {
+            assertEquals(length, reader.readRemaining());
+            MyByteable mb = new MyByteable();
+            for (int i = 0; i < 10_000; i++) {
+                mb.readMarshallable(reader);
+                assertEquals(new MyByteable(i % 2 == 0, (byte) i, (short) i, (char) i, i, i, i, i).toString(), mb.toString());
+                assertEquals("item-" + i, reader.readUtf8());
+            }
+            byte[] bytes2 = new byte[bytes.length];
+            assertEquals(bytes.length, reader.read(bytes2));
+            assertArrayEquals(bytes, bytes2);
+            assertEquals(-1L, reader.readLong());
+            assertEquals(0, reader.readRemaining());
+
+            // reading out of order discards the read ahead.
+            reader.readPosition(length - 8);
+            assertEquals(-1L, reader.readLong());
+            reader.readPosition(0);
+            mb.readMarshallable(reader);
+            assertEquals(new MyByteable(true, (byte) 0, (short) 0, (char) 0, 0, 0, 0, 0).toString(), mb.toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCannotRewriteWrittenData() throws IOException {
+        File file = File.createTempFile("sequential", ".dat");
+        file.deleteOnExit();
+        try (SequentialFileWriter writer = SequentialFileWriter.open(file, 16 << 10, false)) {
+            for (int i = 0; i < 10_000; i++)
+                writer.writeLong(i);
+            writer.writeLong(0, 1L);
+        }
+    }
+
+    @Test
+    public void testCannotReadWrittenData() throws IOException {
+        File file = File.createTempFile("sequential", ".dat");
+        file.deleteOnExit();
+        try (SequentialFileWriter writer = SequentialFileWriter.open(file, 16 << 10, false)) {
+            for (int i = 0; i < 10_000; i++)
+                writer.writeLong(i);
+            try {
+                writer.readLong(0);
+                fail();
+            } catch (BufferUnderflowException expected) {
+                // already written to the file.
+            }
+            // only the current buffer is left to read.
+            assertTrue(writer.readPosition() > 0);
+            assertEquals(writer.readPosition() / 8, writer.readLong());
+            assertNotNull(writer.toString());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryByteArrayReferenceTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void getSetValues() {
+        int length = 104 + 2 * 8;
+        try (Bytes bytes = Bytes.allocateDirect(length)) {
+            BinaryByteArrayReference.write(bytes, 100);
+            getSetValues(bytes, length);
+        }
+    }
+
+    @Test
+    public void getSetValuesOnHeap() {
+        int length = 104 + 2 * 8;
+        Bytes<byte[]> bytes = Bytes.wrapForWrite(new byte[length]);
+        BinaryByteArrayReference.write(bytes, 100);
+        getSetValues(bytes, length);
+    }
+
+    private void getSetValues(Bytes bytes, int length) {
+        assertEquals(length, bytes.writePosition());
+        BinaryByteArrayReference array = new BinaryByteArrayReference();
+        array.bytesStore(bytes, 0, length);
+
+        assertEquals(100, array.getCapacity());
+        for (int i = 0; i < 100; i++)
+            array.setOrderedValueAt(i, (byte) (i - 50));
+
+        // each byte can be swapped without changing its neighbours in the same word.
+        for (int i = 0; i < 100; i++)
+            assertTrue(array.compareAndSet(i, (byte) (i - 50), (byte) ~i));
+        assertFalse(array.compareAndSet(9, (byte) -41, (byte) 0));
+        for (int i = 0; i < 100; i++)
+            assertEquals((byte) ~i, array.getVolatileValueAt(i));
+
+        byte[] values = new byte[100];
+        assertEquals(100, array.copyTo(values));
+        for (int i = 0; i < 100; i++)
+            assertEquals((byte) ~i, values[i]);
+    }
+}
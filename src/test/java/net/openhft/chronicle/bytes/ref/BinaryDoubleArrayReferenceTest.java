@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryDoubleArrayReferenceTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void getSetValues() {
+        int length = 128 * 8 + 2 * 8;
+        try (Bytes bytes = Bytes.allocateDirect(length)) {
+            BinaryDoubleArrayReference.lazyWrite(bytes, 128);
+
+            BinaryDoubleArrayReference array = new BinaryDoubleArrayReference();
+            array.bytesStore(bytes, 0, length);
+
+            assertEquals(128, array.getCapacity());
+            for (int i = 0; i < 128; i++)
+                array.setValueAt(i, i + 0.5);
+            for (int i = 0; i < 128; i++)
+                assertEquals(i + 0.5, array.getVolatileValueAt(i), 0.0);
+
+            assertTrue(array.compareAndSet(3, 3.5, -1.25));
+            assertFalse(array.compareAndSet(3, 3.5, 2.0));
+            array.setOrderedValueAt(4, 1e9);
+
+            double[] values = new double[3];
+            assertEquals(3, array.copyTo(values));
+            assertArrayEquals(new double[]{0.5, 1.5, 2.5}, values, 0.0);
+            values = new double[128];
+            array.copyTo(values);
+            assertEquals(-1.25, values[3], 0.0);
+            assertEquals(1e9, values[4], 0.0);
+            assertEquals(127.5, values[127], 0.0);
+        }
+    }
+}
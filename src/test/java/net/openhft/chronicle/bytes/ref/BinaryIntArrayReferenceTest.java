@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.bytes.ref;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.threads.ThreadDump;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryIntArrayReferenceTest {
+
+    private ThreadDump threadDump;
+
+    @Before
+    public void threadDump() {
+        threadDump = new ThreadDump();
+    }
+
+    @After
+    public void checkThreadDump() {
+        threadDump.assertNoNewThreads();
+    }
+
+    @Test
+    public void getSetValues() {
+        int length = (int) new BinaryIntArrayReference().sizeInBytes(127);
+        assertEquals(127 * 4 + 4 + 2 * 8, length);
+        try (Bytes bytes = Bytes.allocateDirect(length)) {
+            BinaryIntArrayReference.write(bytes, 127);
+            assertEquals(length, bytes.writePosition());
+
+            BinaryIntArrayReference array = new BinaryIntArrayReference();
+            array.bytesStore(bytes, 0, length);
+
+            assertEquals(127, array.getCapacity());
+            for (int i = 0; i < 127; i++)
+                array.setOrderedValueAt(i, -i);
+            for (int i = 0; i < 127; i++)
+                assertEquals(-i, array.getVolatileValueAt(i));
+
+            assertTrue(array.compareAndSet(5, -5, 55));
+            assertFalse(array.compareAndSet(5, -5, 66));
+            assertEquals(55, array.getValueAt(5));
+
+            array.setMaxUsed(10);
+            array.setMaxUsed(5);
+            assertEquals(10, array.getUsed());
+
+            int[] values = new int[200];
+            assertEquals(127, array.copyTo(values));
+            assertEquals(55, values[5]);
+            assertEquals(-126, values[126]);
+            assertEquals(0, values[127]);
+
+            BinaryIntReference ref = new BinaryIntReference();
+            array.bindValueAt(7, ref);
+            ref.setValue(77);
+            assertEquals(77, array.getValueAt(7));
+        }
+    }
+}
@@ -51,6 +51,11 @@ public class BinaryLongArrayReferenceTest {
 
             for (int i = 0; i < 128; i++)
                 assertEquals(i + 1, array.getValueAt(i));
+
+            long[] values = new long[128];
+            assertEquals(128, array.copyTo(values));
+            for (int i = 0; i < 128; i++)
+                assertEquals(i + 1, values[i]);
         }
     }
 }
\ No newline at end of file